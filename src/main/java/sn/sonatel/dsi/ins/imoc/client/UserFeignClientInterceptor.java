@@ -13,6 +13,10 @@ public class UserFeignClientInterceptor implements RequestInterceptor {
 
     @Override
     public void apply(RequestTemplate template) {
+        // Un appel qui porte déjà son jeton, celui du service, le garde
+        if (template.headers().containsKey(AUTHORIZATION_HEADER)) {
+            return;
+        }
         SecurityUtils.getCurrentUserJWT().ifPresent(s -> template.header(AUTHORIZATION_HEADER, String.format("%s %s", BEARER, s)));
     }
 }
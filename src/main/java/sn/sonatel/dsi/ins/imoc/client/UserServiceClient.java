@@ -0,0 +1,22 @@
+package sn.sonatel.dsi.ins.imoc.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+/**
+ * Client of the service holding the user accounts, {@code application.email.user-service} in Consul. The endpoint is
+ * restricted to the administrators: the caller gives the {@code Authorization} header, a token of this service, which
+ * {@link UserFeignClientInterceptor} then leaves as is.
+ */
+@FeignClient(name = "${application.email.user-service:gateway}", contextId = "userServiceClient")
+public interface UserServiceClient {
+    @GetMapping("/api/admin/users/{login}")
+    User getUser(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization, @PathVariable("login") String login);
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record User(String login, String email) {}
+}
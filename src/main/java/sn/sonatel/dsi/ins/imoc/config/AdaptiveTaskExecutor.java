@@ -0,0 +1,234 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * A {@link ThreadPoolTaskExecutor} that serves its queue by {@link TaskPriority}, exports its saturation to Micrometer,
+ * and sizes its core pool from the time tasks wait in the queue.
+ * <p>
+ * The core size starts at {@code spring.task.execution.pool.core-size}. While the average wait exceeds
+ * {@code application.async-executor.target-wait}, it grows by one thread per adjustment interval, up to
+ * {@code spring.task.execution.pool.max-size}; once the wait falls well under the target, it shrinks back one thread at a
+ * time, the idle threads timing out.
+ * <p>
+ * Metrics, tagged by priority where it applies: {@code async.executor.queued}, {@code async.executor.active},
+ * {@code async.executor.pool.size}, {@code async.executor.pool.core}, {@code async.executor.task.wait},
+ * {@code async.executor.task.run} and {@code async.executor.rejected}.
+ */
+public class AdaptiveTaskExecutor extends ThreadPoolTaskExecutor {
+
+    public static final String METRIC_PREFIX = "async.executor";
+
+    // Poids de la dernière mesure dans la moyenne glissante de l'attente
+    private static final double WAIT_SMOOTHING = 0.2;
+
+    // Le décorateur enveloppe chaque tâche, la file ne contient donc que des PrioritizedTask
+    private static final Comparator<Runnable> PRIORITY_ORDER = Comparator.comparing(
+        (Runnable task) -> ((PrioritizedTask) task).priority
+    ).thenComparingLong(task -> ((PrioritizedTask) task).sequence);
+
+    private final Logger log = LoggerFactory.getLogger(AdaptiveTaskExecutor.class);
+
+    private final long targetWaitNanos;
+
+    private final long adjustIntervalNanos;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong lastAdjustment = new AtomicLong(System.nanoTime());
+
+    private final Map<TaskPriority, Timer> waitTimers = new EnumMap<>(TaskPriority.class);
+
+    private final Map<TaskPriority, Timer> runTimers = new EnumMap<>(TaskPriority.class);
+
+    private final Map<TaskPriority, Counter> rejections = new EnumMap<>(TaskPriority.class);
+
+    // Tâches en file par priorité, tenues à jour à l'entrée et à la sortie : la jauge ne parcourt pas la file
+    private final Map<TaskPriority, AtomicLong> queued = new EnumMap<>(TaskPriority.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private volatile double averageWaitNanos;
+
+    private int minCoreSize;
+
+    private int queueCapacity;
+
+    public AdaptiveTaskExecutor(Duration targetWait, Duration adjustInterval, MeterRegistry meterRegistry) {
+        this.targetWaitNanos = targetWait.toNanos();
+        this.adjustIntervalNanos = adjustInterval.toNanos();
+        this.meterRegistry = meterRegistry;
+        for (TaskPriority priority : TaskPriority.values()) {
+            String tag = priority.name().toLowerCase();
+            waitTimers.put(priority, Timer.builder(METRIC_PREFIX + ".task.wait").tag("priority", tag).register(meterRegistry));
+            runTimers.put(priority, Timer.builder(METRIC_PREFIX + ".task.run").tag("priority", tag).register(meterRegistry));
+            rejections.put(priority, Counter.builder(METRIC_PREFIX + ".rejected").tag("priority", tag).register(meterRegistry));
+            queued.put(priority, new AtomicLong());
+        }
+        setTaskDecorator(task -> new PrioritizedTask(task, TaskPriority.current(), sequence.getAndIncrement(), System.nanoTime()));
+        setRejectedExecutionHandler((task, executor) -> {
+            if (task instanceof PrioritizedTask prioritizedTask) {
+                rejections.get(prioritizedTask.priority).increment();
+            }
+            throw new RejectedExecutionException("Task " + task + " rejected: the queue holds " + queueCapacity + " tasks");
+        });
+        setAllowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void setQueueCapacity(int queueCapacity) {
+        super.setQueueCapacity(queueCapacity);
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void setCorePoolSize(int corePoolSize) {
+        super.setCorePoolSize(corePoolSize);
+        if (minCoreSize == 0) {
+            minCoreSize = corePoolSize;
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        for (TaskPriority priority : TaskPriority.values()) {
+            Gauge.builder(METRIC_PREFIX + ".queued", queued.get(priority), AtomicLong::get)
+                .tag("priority", priority.name().toLowerCase())
+                .register(meterRegistry);
+        }
+        Gauge.builder(METRIC_PREFIX + ".active", this, ThreadPoolTaskExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".pool.size", this, ThreadPoolTaskExecutor::getPoolSize).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".pool.core", this, ThreadPoolTaskExecutor::getCorePoolSize).register(meterRegistry);
+    }
+
+    // Les tâches sont servies par priorité, puis dans l'ordre d'arrivée
+    @Override
+    protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+        return new BoundedPriorityQueue(queueCapacity);
+    }
+
+    private void recordWait(TaskPriority priority, long waitNanos) {
+        waitTimers.get(priority).record(waitNanos, TimeUnit.NANOSECONDS);
+        averageWaitNanos = averageWaitNanos + WAIT_SMOOTHING * (waitNanos - averageWaitNanos);
+        long now = System.nanoTime();
+        long last = lastAdjustment.get();
+        if (now - last >= adjustIntervalNanos && lastAdjustment.compareAndSet(last, now)) {
+            adjustCoreSize();
+        }
+    }
+
+    private void adjustCoreSize() {
+        int coreSize = getCorePoolSize();
+        if (averageWaitNanos > targetWaitNanos && coreSize < getMaxPoolSize()) {
+            super.setCorePoolSize(coreSize + 1);
+            log.debug("Task executor grown to {} threads, average wait {} ms", coreSize + 1, (long) averageWaitNanos / 1_000_000);
+        } else if (averageWaitNanos < targetWaitNanos / 4 && coreSize > minCoreSize) {
+            super.setCorePoolSize(coreSize - 1);
+            log.debug("Task executor shrunk to {} threads, average wait {} ms", coreSize - 1, (long) averageWaitNanos / 1_000_000);
+        }
+    }
+
+    private final class PrioritizedTask implements Runnable {
+
+        private final Runnable task;
+
+        private final TaskPriority priority;
+
+        private final long sequence;
+
+        private final long submittedAt;
+
+        // Vrai tant que la tâche est comptée en file ; une tâche confiée directement à un nouveau thread ne l'est pas
+        private final AtomicBoolean inQueue = new AtomicBoolean();
+
+        private PrioritizedTask(Runnable task, TaskPriority priority, long sequence, long submittedAt) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public void run() {
+            leaveQueue();
+            recordWait(priority, System.nanoTime() - submittedAt);
+            runTimers.get(priority).record(task);
+        }
+
+        private void enterQueue() {
+            if (inQueue.compareAndSet(false, true)) {
+                queued.get(priority).incrementAndGet();
+            }
+        }
+
+        private void leaveQueue() {
+            if (inQueue.compareAndSet(true, false)) {
+                queued.get(priority).decrementAndGet();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return task + " [" + priority + "]";
+        }
+    }
+
+    /**
+     * A priority queue refusing new tasks once it holds its capacity, so that the pool grows then rejects as with a
+     * bounded FIFO queue.
+     */
+    private final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+
+        private final int capacity;
+
+        private BoundedPriorityQueue(int capacity) {
+            super(64, PRIORITY_ORDER);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(Runnable task) {
+            if (size() >= capacity) {
+                return false;
+            }
+            // Comptée avant d'être visible des threads du pool, qui la décomptent en la démarrant
+            ((PrioritizedTask) task).enterQueue();
+            if (!super.offer(task)) {
+                ((PrioritizedTask) task).leaveQueue();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object task) {
+            boolean removed = super.remove(task);
+            if (removed && task instanceof PrioritizedTask prioritizedTask) {
+                prioritizedTask.leaveQueue();
+            }
+            return removed;
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(capacity - size(), 0);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package sn.sonatel.dsi.ins.imoc.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -13,12 +16,138 @@ public class ApplicationProperties {
 
     private final Liquibase liquibase = new Liquibase();
 
+    private final History history = new History();
+
+    private final ResponseCache responseCache = new ResponseCache();
+
+    private final Feign feign = new Feign();
+
+    private final Bulk bulk = new Bulk();
+
+    private final Coalescing coalescing = new Coalescing();
+
+    private final Broadcast broadcast = new Broadcast();
+
+    private final Compression compression = new Compression();
+
+    private final Retention retention = new Retention();
+
+    private final Cap cap = new Cap();
+
+    private final Archive archive = new Archive();
+
+    private final Replica replica = new Replica();
+
+    private final Sharding sharding = new Sharding();
+
+    private final AsyncExecutor asyncExecutor = new AsyncExecutor();
+
+    private final ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    private final RateLimit rateLimit = new RateLimit();
+
+    private final PollHint pollHint = new PollHint();
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    private final FastPath fastPath = new FastPath();
+
+    private final Deferred deferred = new Deferred();
+
+    private final Email email = new Email();
+
+    private final Templates templates = new Templates();
+
     // jhipster-needle-application-properties-property
 
     public Liquibase getLiquibase() {
         return liquibase;
     }
 
+    public History getHistory() {
+        return history;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public Feign getFeign() {
+        return feign;
+    }
+
+    public Bulk getBulk() {
+        return bulk;
+    }
+
+    public Coalescing getCoalescing() {
+        return coalescing;
+    }
+
+    public Broadcast getBroadcast() {
+        return broadcast;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public Retention getRetention() {
+        return retention;
+    }
+
+    public Cap getCap() {
+        return cap;
+    }
+
+    public Archive getArchive() {
+        return archive;
+    }
+
+    public Replica getReplica() {
+        return replica;
+    }
+
+    public Sharding getSharding() {
+        return sharding;
+    }
+
+    public AsyncExecutor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    public ConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public PollHint getPollHint() {
+        return pollHint;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    public FastPath getFastPath() {
+        return fastPath;
+    }
+
+    public Deferred getDeferred() {
+        return deferred;
+    }
+
+    public Email getEmail() {
+        return email;
+    }
+
+    public Templates getTemplates() {
+        return templates;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
     public static class Liquibase {
@@ -33,5 +162,1280 @@ public class ApplicationProperties {
             this.asyncStart = asyncStart;
         }
     }
+
+    public static class History {
+
+        /**
+         * Stream the unread history straight from the JDBC result set into the JSON response,
+         * without building entities or DTOs.
+         */
+        private boolean streamingJson = false;
+
+        public boolean isStreamingJson() {
+            return streamingJson;
+        }
+
+        public void setStreamingJson(boolean streamingJson) {
+            this.streamingJson = streamingJson;
+        }
+    }
+
+    public static class ResponseCache {
+
+        private boolean enabled = false;
+
+        /**
+         * Upper bound of the cached bytes, JSON and gzip bodies included.
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * Bodies smaller than this are not gzipped, as with {@code server.compression.min-response-size}.
+         */
+        private long minCompressSize = 1024;
+
+        /**
+         * Bounds the staleness of an entry when the notifications are changed by another instance.
+         */
+        private Duration timeToLive = Duration.ofMinutes(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public long getMinCompressSize() {
+            return minCompressSize;
+        }
+
+        public void setMinCompressSize(long minCompressSize) {
+            this.minCompressSize = minCompressSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    public static class Feign {
+
+        /**
+         * Representation preferred by the Feign clients in the Accept header, JSON staying the fallback.
+         */
+        private BinaryFormat binaryFormat = BinaryFormat.NONE;
+
+        public BinaryFormat getBinaryFormat() {
+            return binaryFormat;
+        }
+
+        public void setBinaryFormat(BinaryFormat binaryFormat) {
+            this.binaryFormat = binaryFormat;
+        }
+
+        public enum BinaryFormat {
+            NONE(null),
+            CBOR("application/cbor"),
+            SMILE("application/x-jackson-smile");
+
+            private final String mediaType;
+
+            BinaryFormat(String mediaType) {
+                this.mediaType = mediaType;
+            }
+
+            public String getMediaType() {
+                return mediaType;
+            }
+        }
+    }
+
+    public static class Bulk {
+
+        /**
+         * Number of ids per IN list. A power of two keeps a single padded statement per chunk,
+         * see {@code hibernate.query.in_clause_parameter_padding}.
+         */
+        private int chunkSize = 512;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class Coalescing {
+
+        /**
+         * Merge the new notifications of a user for the same reservation and kind into a single unread row.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Length of the fixed time windows inside which notifications are merged.
+         */
+        private Duration window = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+    }
+
+    public static class Broadcast {
+
+        /**
+         * Number of explicit recipients inserted per JDBC batch.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Width of the notification id ranges scanned by each INSERT ... SELECT of an audience fan-out.
+         */
+        private long audienceChunkSize = 50_000;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getAudienceChunkSize() {
+            return audienceChunkSize;
+        }
+
+        public void setAudienceChunkSize(long audienceChunkSize) {
+            this.audienceChunkSize = audienceChunkSize;
+        }
+    }
+
+    public static class Compression {
+
+        /**
+         * Deflate the messages written from now on, when it makes them shorter. Compressed messages
+         * are always read back, whatever this setting.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Messages shorter than this number of characters are stored as is.
+         */
+        private int minSize = 1024;
+
+        /**
+         * Number of rows read per batch by the job compressing the existing messages.
+         */
+        private int rewriteBatchSize = 500;
+
+        /**
+         * Cron expression of the job compressing the existing messages, {@code -} to disable it.
+         */
+        private String rewriteCron = "-";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public void setMinSize(int minSize) {
+            this.minSize = minSize;
+        }
+
+        public int getRewriteBatchSize() {
+            return rewriteBatchSize;
+        }
+
+        public void setRewriteBatchSize(int rewriteBatchSize) {
+            this.rewriteBatchSize = rewriteBatchSize;
+        }
+
+        public String getRewriteCron() {
+            return rewriteCron;
+        }
+
+        public void setRewriteCron(String rewriteCron) {
+            this.rewriteCron = rewriteCron;
+        }
+    }
+
+    public static class Retention {
+
+        /**
+         * Cron expression of the purge, {@code -} to disable it.
+         */
+        private String cron = "-";
+
+        /**
+         * Soft-deleted notifications are purged once unchanged for this long.
+         */
+        private Duration deletedAfter = Duration.ofDays(30);
+
+        /**
+         * Read notifications are purged once unchanged for this long.
+         */
+        private Duration readAfter = Duration.ofDays(180);
+
+        /**
+         * Width of the id ranges deleted by each statement.
+         */
+        private long chunkSize = 1000;
+
+        /**
+         * Pause between two statements, to leave room for the application traffic.
+         */
+        private Duration pause = Duration.ofMillis(100);
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+
+        public Duration getDeletedAfter() {
+            return deletedAfter;
+        }
+
+        public void setDeletedAfter(Duration deletedAfter) {
+            this.deletedAfter = deletedAfter;
+        }
+
+        public Duration getReadAfter() {
+            return readAfter;
+        }
+
+        public void setReadAfter(Duration readAfter) {
+            this.readAfter = readAfter;
+        }
+
+        public long getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(long chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public Duration getPause() {
+            return pause;
+        }
+
+        public void setPause(Duration pause) {
+            this.pause = pause;
+        }
+    }
+
+    public static class Cap {
+
+        /**
+         * Evict the oldest notifications of the users holding more than {@link #maxPerUser}.
+         */
+        private boolean enabled = false;
+
+        private int maxPerUser = 1000;
+
+        /**
+         * Maximum number of rows deleted by each statement.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Delay between two passes over the users whose notifications changed.
+         */
+        private Duration delay = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxPerUser() {
+            return maxPerUser;
+        }
+
+        public void setMaxPerUser(int maxPerUser) {
+            this.maxPerUser = maxPerUser;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getDelay() {
+            return delay;
+        }
+
+        public void setDelay(Duration delay) {
+            this.delay = delay;
+        }
+    }
+
+    public static class Archive {
+
+        /**
+         * Local directory of the archive segments. Every instance serving the history must see the same directory.
+         */
+        private String directory = "target/archive";
+
+        /**
+         * Cron expression of the archive job, {@code -} to disable it.
+         */
+        private String cron = "-";
+
+        /**
+         * Read notifications created longer ago than this are moved to the archive. Must be shorter than
+         * {@code application.retention.read-after} when both jobs run, or the purge deletes them first.
+         */
+        private Duration after = Duration.ofDays(90);
+
+        /**
+         * Number of notifications read from the table per query.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Number of notifications accumulated before the segments are written and the rows deleted.
+         */
+        private int segmentSize = 100_000;
+
+        /**
+         * Interval at which the segments written by the other instances are listed again.
+         */
+        private Duration refresh = Duration.ofMinutes(1);
+
+        /**
+         * Number of segments kept memory-mapped, the least used being released first.
+         */
+        private int openSegments = 64;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+
+        public Duration getAfter() {
+            return after;
+        }
+
+        public void setAfter(Duration after) {
+            this.after = after;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public Duration getRefresh() {
+            return refresh;
+        }
+
+        public void setRefresh(Duration refresh) {
+            this.refresh = refresh;
+        }
+
+        public int getOpenSegments() {
+            return openSegments;
+        }
+
+        public void setOpenSegments(int openSegments) {
+            this.openSegments = openSegments;
+        }
+    }
+
+    public static class Replica {
+
+        /**
+         * Route the read-only transactions to the replica described below, the others to spring.datasource.
+         */
+        private boolean enabled = false;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+
+        /**
+         * Above this replication lag, or when it cannot be measured, reads go to the primary.
+         */
+        private Duration maxLag = Duration.ofSeconds(5);
+
+        private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+        /**
+         * After a change to the notifications of a user, the reads of this user go to the primary for this long.
+         */
+        private Duration stickiness = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public Duration getMaxLag() {
+            return maxLag;
+        }
+
+        public void setMaxLag(Duration maxLag) {
+            this.maxLag = maxLag;
+        }
+
+        public Duration getLagCheckInterval() {
+            return lagCheckInterval;
+        }
+
+        public void setLagCheckInterval(Duration lagCheckInterval) {
+            this.lagCheckInterval = lagCheckInterval;
+        }
+
+        public Duration getStickiness() {
+            return stickiness;
+        }
+
+        public void setStickiness(Duration stickiness) {
+            this.stickiness = stickiness;
+        }
+    }
+
+    public static class Sharding {
+
+        /**
+         * Spread the notifications over spring.datasource, the first shard, and the shards below, by a hash of the login.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Points of each shard on the hash ring: the more points, the more even the spread.
+         */
+        private int virtualNodes = 160;
+
+        /**
+         * The additional shards. New shards must be appended, the position of a shard sets the range of its ids.
+         */
+        private List<Shard> shards = new ArrayList<>();
+
+        private int rebalanceBatchSize = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public List<Shard> getShards() {
+            return shards;
+        }
+
+        public void setShards(List<Shard> shards) {
+            this.shards = shards;
+        }
+
+        public int getRebalanceBatchSize() {
+            return rebalanceBatchSize;
+        }
+
+        public void setRebalanceBatchSize(int rebalanceBatchSize) {
+            this.rebalanceBatchSize = rebalanceBatchSize;
+        }
+
+        public static class Shard {
+
+            /**
+             * Name of the shard, which places it on the hash ring: renaming a shard moves its users.
+             */
+            private String name;
+
+            private String url;
+
+            private String username;
+
+            private String password;
+
+            private int maximumPoolSize = 10;
+
+            public String getName() {
+                return name;
+            }
+
+            public void setName(String name) {
+                this.name = name;
+            }
+
+            public String getUrl() {
+                return url;
+            }
+
+            public void setUrl(String url) {
+                this.url = url;
+            }
+
+            public String getUsername() {
+                return username;
+            }
+
+            public void setUsername(String username) {
+                this.username = username;
+            }
+
+            public String getPassword() {
+                return password;
+            }
+
+            public void setPassword(String password) {
+                this.password = password;
+            }
+
+            public int getMaximumPoolSize() {
+                return maximumPoolSize;
+            }
+
+            public void setMaximumPoolSize(int maximumPoolSize) {
+                this.maximumPoolSize = maximumPoolSize;
+            }
+        }
+    }
+
+    public static class AsyncExecutor {
+
+        /**
+         * Above this average queue wait, the core pool grows by one thread per adjustment interval, up to
+         * spring.task.execution.pool.max-size; well below it, the pool shrinks back to core-size.
+         */
+        private Duration targetWait = Duration.ofMillis(100);
+
+        private Duration adjustInterval = Duration.ofSeconds(5);
+
+        public Duration getTargetWait() {
+            return targetWait;
+        }
+
+        public void setTargetWait(Duration targetWait) {
+            this.targetWait = targetWait;
+        }
+
+        public Duration getAdjustInterval() {
+            return adjustInterval;
+        }
+
+        public void setAdjustInterval(Duration adjustInterval) {
+            this.adjustInterval = adjustInterval;
+        }
+    }
+
+    public static class ConcurrencyLimit {
+
+        /**
+         * Reject with 503 the API requests above the concurrency limit of their partition.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Factor applied to the limit of a partition when a request is slower than its max-latency, or fails with a 5xx.
+         */
+        private double backoffRatio = 0.9;
+
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        private final Partition reads = new Partition(50, Duration.ofMillis(500));
+
+        private final Partition writes = new Partition(20, Duration.ofSeconds(1));
+
+        private final Partition bulk = new Partition(4, Duration.ofSeconds(10));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+
+        public Partition getReads() {
+            return reads;
+        }
+
+        public Partition getWrites() {
+            return writes;
+        }
+
+        public Partition getBulk() {
+            return bulk;
+        }
+
+        public static class Partition {
+
+            private int initialLimit;
+
+            private int minLimit = 1;
+
+            private int maxLimit = 200;
+
+            /**
+             * Requests slower than this make the limit shrink, the others let it grow while it is in use.
+             */
+            private Duration maxLatency;
+
+            public Partition(int initialLimit, Duration maxLatency) {
+                this.initialLimit = initialLimit;
+                this.maxLatency = maxLatency;
+            }
+
+            public int getInitialLimit() {
+                return initialLimit;
+            }
+
+            public void setInitialLimit(int initialLimit) {
+                this.initialLimit = initialLimit;
+            }
+
+            public int getMinLimit() {
+                return minLimit;
+            }
+
+            public void setMinLimit(int minLimit) {
+                this.minLimit = minLimit;
+            }
+
+            public int getMaxLimit() {
+                return maxLimit;
+            }
+
+            public void setMaxLimit(int maxLimit) {
+                this.maxLimit = maxLimit;
+            }
+
+            public Duration getMaxLatency() {
+                return maxLatency;
+            }
+
+            public void setMaxLatency(Duration maxLatency) {
+                this.maxLatency = maxLatency;
+            }
+        }
+    }
+
+    public static class RateLimit {
+
+        /**
+         * Answer with 429 the API requests of a user, or of an anonymous client IP, above its rate.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of tracked users and IPs, the idle ones being evicted first.
+         */
+        private int maxEntries = 100_000;
+
+        /**
+         * Addresses of the gateways and proxies, as a regular expression: the client IP is read from the
+         * {@code X-Forwarded-For} header they append to, and from nowhere else.
+         */
+        private String trustedProxies =
+            "10\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}|192\\.168\\.\\d{1,3}\\.\\d{1,3}|172\\.(1[6-9]|2\\d|3[01])\\.\\d{1,3}\\.\\d{1,3}|" +
+            "127\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}|0:0:0:0:0:0:0:1|::1";
+
+        private final Policy user = new Policy(5, 20);
+
+        private final Policy anonymous = new Policy(1, 5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public String getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(String trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+
+        public Policy getUser() {
+            return user;
+        }
+
+        public Policy getAnonymous() {
+            return anonymous;
+        }
+
+        public static class Policy {
+
+            /**
+             * Sustained number of requests per second.
+             */
+            private double rate;
+
+            /**
+             * Number of requests allowed at once after an idle period.
+             */
+            private int burst;
+
+            public Policy(double rate, int burst) {
+                this.rate = rate;
+                this.burst = burst;
+            }
+
+            public double getRate() {
+                return rate;
+            }
+
+            public void setRate(double rate) {
+                this.rate = rate;
+            }
+
+            public int getBurst() {
+                return burst;
+            }
+
+            public void setBurst(int burst) {
+                this.burst = burst;
+            }
+        }
+    }
+
+    public static class PollHint {
+
+        /**
+         * Reject the polls of the unread notifications arriving well before the interval given to the client.
+         */
+        private boolean enforced = false;
+
+        /**
+         * Interval given right after a change to the notifications of the user.
+         */
+        private Duration minInterval = Duration.ofSeconds(5);
+
+        /**
+         * Interval given once the notifications of the user did not change for idle-ramp.
+         */
+        private Duration maxInterval = Duration.ofSeconds(60);
+
+        private Duration idleRamp = Duration.ofMinutes(10);
+
+        /**
+         * Above this usage of the connection pools or of the task queue, the intervals are stretched,
+         * up to max-load-factor times at full usage.
+         */
+        private double loadThreshold = 0.7;
+
+        private double maxLoadFactor = 4;
+
+        /**
+         * Share of the interval after which a new poll is accepted.
+         */
+        private double earlyTolerance = 0.5;
+
+        private int maxTracked = 100_000;
+
+        public boolean isEnforced() {
+            return enforced;
+        }
+
+        public void setEnforced(boolean enforced) {
+            this.enforced = enforced;
+        }
+
+        public Duration getMinInterval() {
+            return minInterval;
+        }
+
+        public void setMinInterval(Duration minInterval) {
+            this.minInterval = minInterval;
+        }
+
+        public Duration getMaxInterval() {
+            return maxInterval;
+        }
+
+        public void setMaxInterval(Duration maxInterval) {
+            this.maxInterval = maxInterval;
+        }
+
+        public Duration getIdleRamp() {
+            return idleRamp;
+        }
+
+        public void setIdleRamp(Duration idleRamp) {
+            this.idleRamp = idleRamp;
+        }
+
+        public double getLoadThreshold() {
+            return loadThreshold;
+        }
+
+        public void setLoadThreshold(double loadThreshold) {
+            this.loadThreshold = loadThreshold;
+        }
+
+        public double getMaxLoadFactor() {
+            return maxLoadFactor;
+        }
+
+        public void setMaxLoadFactor(double maxLoadFactor) {
+            this.maxLoadFactor = maxLoadFactor;
+        }
+
+        public double getEarlyTolerance() {
+            return earlyTolerance;
+        }
+
+        public void setEarlyTolerance(double earlyTolerance) {
+            this.earlyTolerance = earlyTolerance;
+        }
+
+        public int getMaxTracked() {
+            return maxTracked;
+        }
+
+        public void setMaxTracked(int maxTracked) {
+            this.maxTracked = maxTracked;
+        }
+    }
+
+    public static class SingleFlight {
+
+        /**
+         * Share one query between the concurrent identical reads of a user: unread count and histories.
+         */
+        private boolean enabled = true;
+
+        /**
+         * How long a caller waits for the shared query before running its own.
+         */
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    public static class FastPath {
+
+        /**
+         * Answer GET /api/notifications/non-lue from an Undertow handler, ahead of the servlet filters and of Spring MVC.
+         */
+        private boolean unreadCount = false;
+
+        public boolean isUnreadCount() {
+            return unreadCount;
+        }
+
+        public void setUnreadCount(boolean unreadCount) {
+            this.unreadCount = unreadCount;
+        }
+    }
+
+    public static class Deferred {
+
+        /**
+         * Deliver the notifications created with a future deliverAt. When disabled, they stay in the table.
+         */
+        private boolean enabled = true;
+
+        private Duration tick = Duration.ofSeconds(1);
+
+        private int wheelSize = 512;
+
+        /**
+         * The notifications due within this window are loaded into the timing wheel, at each refresh.
+         */
+        private Duration horizon = Duration.ofMinutes(10);
+
+        private Duration refreshInterval = Duration.ofSeconds(30);
+
+        /**
+         * Length of the time buckets shared out between the instances: each bucket is delivered by a single instance.
+         */
+        private Duration bucket = Duration.ofMinutes(1);
+
+        private int batchSize = 100;
+
+        private int maxLoaded = 100_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTick() {
+            return tick;
+        }
+
+        public void setTick(Duration tick) {
+            this.tick = tick;
+        }
+
+        public int getWheelSize() {
+            return wheelSize;
+        }
+
+        public void setWheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+        }
+
+        public Duration getHorizon() {
+            return horizon;
+        }
+
+        public void setHorizon(Duration horizon) {
+            this.horizon = horizon;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public Duration getBucket() {
+            return bucket;
+        }
+
+        public void setBucket(Duration bucket) {
+            this.bucket = bucket;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxLoaded() {
+            return maxLoaded;
+        }
+
+        public void setMaxLoaded(int maxLoaded) {
+            this.maxLoaded = maxLoaded;
+        }
+    }
+
+    public static class Email {
+
+        /**
+         * Send by e-mail the notifications created with sendEmail, through spring.mail. When disabled, sendEmail is ignored.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Name in Consul of the service holding the user accounts, asked for the address of the recipient.
+         */
+        private String userService = "gateway";
+
+        private Duration pollInterval = Duration.ofSeconds(5);
+
+        /**
+         * Number of e-mails taken from the outbox at each poll.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Number of SMTP sessions open at once.
+         */
+        private int concurrency = 2;
+
+        /**
+         * Number of e-mails sent through one SMTP session.
+         */
+        private int messagesPerSession = 20;
+
+        /**
+         * E-mails taken by an instance that died while sending them are sent again after this delay.
+         */
+        private Duration lease = Duration.ofMinutes(5);
+
+        private Duration minBackoff = Duration.ofSeconds(30);
+
+        private Duration maxBackoff = Duration.ofHours(1);
+
+        /**
+         * After this number of failed attempts, the e-mail is kept as a dead letter.
+         */
+        private int maxAttempts = 8;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getUserService() {
+            return userService;
+        }
+
+        public void setUserService(String userService) {
+            this.userService = userService;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getMessagesPerSession() {
+            return messagesPerSession;
+        }
+
+        public void setMessagesPerSession(int messagesPerSession) {
+            this.messagesPerSession = messagesPerSession;
+        }
+
+        public Duration getLease() {
+            return lease;
+        }
+
+        public void setLease(Duration lease) {
+            this.lease = lease;
+        }
+
+        public Duration getMinBackoff() {
+            return minBackoff;
+        }
+
+        public void setMinBackoff(Duration minBackoff) {
+            this.minBackoff = minBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+    }
+    public static class Templates {
+
+        /**
+         * Maximum number of parsed Thymeleaf templates kept in memory.
+         */
+        private int parsedCacheSize = 200;
+
+        /**
+         * Maximum number of rendered HTML bodies kept in memory, keyed by template, language and parameters.
+         */
+        private int fragmentCacheMaxEntries = 1000;
+
+        /**
+         * Maximum total size of the rendered HTML bodies kept in memory, counted in characters.
+         */
+        private long fragmentCacheMaxSize = 4 * 1024 * 1024;
+
+        public int getParsedCacheSize() {
+            return parsedCacheSize;
+        }
+
+        public void setParsedCacheSize(int parsedCacheSize) {
+            this.parsedCacheSize = parsedCacheSize;
+        }
+
+        public int getFragmentCacheMaxEntries() {
+            return fragmentCacheMaxEntries;
+        }
+
+        public void setFragmentCacheMaxEntries(int fragmentCacheMaxEntries) {
+            this.fragmentCacheMaxEntries = fragmentCacheMaxEntries;
+        }
+
+        public long getFragmentCacheMaxSize() {
+            return fragmentCacheMaxSize;
+        }
+
+        public void setFragmentCacheMaxSize(long fragmentCacheMaxSize) {
+            this.fragmentCacheMaxSize = fragmentCacheMaxSize;
+        }
+    }
+
     // jhipster-needle-application-properties-property-class
 }
@@ -1,10 +1,12 @@
 package sn.sonatel.dsi.ins.imoc.config;
 
+import feign.RequestInterceptor;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.cloud.openfeign.FeignClientsConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 
 @Configuration
 @EnableFeignClients(basePackages = "sn.sonatel.dsi.ins.imoc")
@@ -18,4 +20,18 @@ public class FeignConfiguration {
     feign.Logger.Level feignLoggerLevel() {
         return feign.Logger.Level.BASIC;
     }
+
+    /**
+     * Ask the other services for a binary representation of the responses, falling back to JSON.
+     * The responses are decoded by the CBOR and Smile converters of {@link JacksonConfiguration}.
+     */
+    @Bean
+    public RequestInterceptor binaryAcceptRequestInterceptor(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Feign.BinaryFormat binaryFormat = applicationProperties.getFeign().getBinaryFormat();
+        return template -> {
+            if (binaryFormat != ApplicationProperties.Feign.BinaryFormat.NONE && !template.headers().containsKey(HttpHeaders.ACCEPT)) {
+                template.header(HttpHeaders.ACCEPT, binaryFormat.getMediaType() + ", application/json;q=0.9");
+            }
+        };
+    }
 }
@@ -0,0 +1,84 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Splits the database traffic between the primary ({@code spring.datasource}) and a read replica
+ * ({@code application.replica}), see {@link ReplicaRoutingDataSource}.
+ * Not used with sharding, see {@link ShardingConfiguration}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.replica", name = "enabled", havingValue = "true")
+@ConditionalOnExpression("!${application.sharding.enabled:false}")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(HikariDataSource primaryDataSource, ApplicationProperties applicationProperties) {
+        ApplicationProperties.Replica properties = applicationProperties.getReplica();
+        HikariDataSource replica = DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .url(properties.getUrl())
+            .username(properties.getUsername())
+            .password(properties.getPassword())
+            .build();
+        // Mêmes réglages que le primaire, hormis la taille du pool
+        replica.setPoolName(primaryDataSource.getPoolName() + "-replica");
+        replica.setAutoCommit(primaryDataSource.isAutoCommit());
+        replica.setReadOnly(true);
+        replica.setMaximumPoolSize(properties.getMaximumPoolSize());
+        replica.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+        return replica;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+        HikariDataSource replicaDataSource,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        return new ReplicaLagMonitor(replicaDataSource, applicationProperties.getReplica().getMaxLag(), meterRegistry);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+        HikariDataSource primaryDataSource,
+        HikariDataSource replicaDataSource,
+        ReplicaLagMonitor replicaLagMonitor,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        return new ReplicaRoutingDataSource(
+            primaryDataSource,
+            replicaDataSource,
+            replicaLagMonitor,
+            applicationProperties.getReplica().getStickiness(),
+            meterRegistry
+        );
+    }
+
+    /**
+     * The data source used by JPA, Liquibase and the JDBC repositories.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,78 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Measures the replication lag of the replica, from {@code SHOW SLAVE STATUS}.
+ * <p>
+ * The replica is considered unusable when the lag exceeds {@code application.replica.max-lag},
+ * when the replication is stopped, or when the replica cannot be queried.
+ */
+public class ReplicaLagMonitor {
+
+    private final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final DataSource replica;
+
+    private final long maxLagSeconds;
+
+    private volatile long lagSeconds = -1;
+
+    private volatile boolean replicaUsable;
+
+    public ReplicaLagMonitor(DataSource replica, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.maxLagSeconds = maxLag.toSeconds();
+        Gauge.builder("notification.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("notification.datasource.replica.usable", this, monitor -> monitor.replicaUsable ? 1 : 0).register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    @Scheduled(
+        initialDelayString = "${application.replica.lag-check-interval:PT5S}",
+        fixedDelayString = "${application.replica.lag-check-interval:PT5S}"
+    )
+    public void checkLag() {
+        long lag = measureLag();
+        boolean usable = lag >= 0 && lag <= maxLagSeconds;
+        if (usable != replicaUsable) {
+            log.warn("Réplique {} (retard : {} s)", usable ? "utilisée pour les lectures" : "écartée, lectures sur le primaire", lag);
+        }
+        lagSeconds = lag;
+        replicaUsable = usable;
+    }
+
+    // -1 quand le retard ne peut pas être mesuré
+    private long measureLag() {
+        try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SHOW SLAVE STATUS")) {
+                if (!rs.next()) {
+                    return -1;
+                }
+                long lag = rs.getLong("Seconds_Behind_Master");
+                return rs.wasNull() ? -1 : lag;
+            } finally {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Impossible de mesurer le retard de la réplique : {}", e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sn.sonatel.dsi.ins.imoc.security.SecurityUtils;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Routes the read-only transactions to the replica, and everything else to the primary.
+ * <p>
+ * Reads also go to the primary when the replica lags, see {@link ReplicaLagMonitor}, and, for a short
+ * window after a change to the notifications of a user, for that user, so that a user always reads its
+ * own writes. Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the read-only flag of the transaction is only known once the transaction has begun.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA,
+    }
+
+    private static final int MAX_STICKY_USERS = 100_000;
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    private final long stickinessNanos;
+
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    private volatile long allStickyUntil;
+
+    private final Counter primaryReads;
+
+    private final Counter replicaReads;
+
+    public ReplicaRoutingDataSource(
+        DataSource primary,
+        DataSource replica,
+        ReplicaLagMonitor lagMonitor,
+        Duration stickiness,
+        MeterRegistry meterRegistry
+    ) {
+        this.lagMonitor = lagMonitor;
+        this.stickinessNanos = stickiness.toNanos();
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.primaryReads = Counter.builder("notification.datasource.reads").tag("target", "primary").register(meterRegistry);
+        this.replicaReads = Counter.builder("notification.datasource.reads").tag("target", "replica").register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Target.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaUsable() || isSticky()) {
+            primaryReads.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    private boolean isSticky() {
+        long now = System.nanoTime();
+        if (now - allStickyUntil < 0) {
+            return true;
+        }
+        String login = SecurityUtils.getCurrentUserLogin().orElse(null);
+        if (login == null) {
+            return false;
+        }
+        Long until = stickyUntil.get(login.toLowerCase());
+        if (until == null) {
+            return false;
+        }
+        if (now - until < 0) {
+            return true;
+        }
+        stickyUntil.remove(login.toLowerCase(), until);
+        return false;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsChanged(NotificationsChangedEvent event) {
+        long until = System.nanoTime() + stickinessNanos;
+        if (event.isForAllUsers()) {
+            allStickyUntil = until;
+            return;
+        }
+        if (stickyUntil.size() >= MAX_STICKY_USERS) {
+            // Trop d'utilisateurs suivis : tout le monde lit sur le primaire pendant la fenêtre
+            stickyUntil.clear();
+            allStickyUntil = until;
+            return;
+        }
+        stickyUntil.put(event.userLogin().toLowerCase(), until);
+    }
+}
@@ -1,5 +1,6 @@
 package sn.sonatel.dsi.ins.imoc.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,6 +14,8 @@ import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
 import sn.sonatel.dsi.ins.imoc.security.AuthoritiesConstants;
 import sn.sonatel.dsi.ins.imoc.security.jwt.JWTFilter;
 import sn.sonatel.dsi.ins.imoc.security.jwt.TokenProvider;
+import sn.sonatel.dsi.ins.imoc.web.filter.ConcurrencyLimitFilter;
+import sn.sonatel.dsi.ins.imoc.web.filter.RateLimitFilter;
 
 @Configuration
 @EnableMethodSecurity(securedEnabled = true)
@@ -20,8 +23,14 @@ public class SecurityConfiguration {
 
     private final TokenProvider tokenProvider;
 
-    public SecurityConfiguration(TokenProvider tokenProvider) {
+    private final ApplicationProperties applicationProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    public SecurityConfiguration(TokenProvider tokenProvider, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
         this.tokenProvider = tokenProvider;
+        this.applicationProperties = applicationProperties;
+        this.meterRegistry = meterRegistry;
     }
 
     @Bean
@@ -47,6 +56,13 @@ public class SecurityConfiguration {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
         http.addFilterBefore(new JWTFilter(tokenProvider), UsernamePasswordAuthenticationFilter.class);
+        if (applicationProperties.getConcurrencyLimit().isEnabled()) {
+            // Avant l'authentification : une requête rejetée ne coûte pas la vérification du jeton
+            http.addFilterBefore(new ConcurrencyLimitFilter(applicationProperties.getConcurrencyLimit(), meterRegistry), JWTFilter.class);
+        }
+        if (applicationProperties.getRateLimit().isEnabled()) {
+            http.addFilterAfter(new RateLimitFilter(applicationProperties.getRateLimit(), meterRegistry), JWTFilter.class);
+        }
 
         return http.build();
     }
@@ -0,0 +1,47 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the shard the current thread works on, read by {@link ShardRoutingDataSource}.
+ * <p>
+ * Only the connections obtained while a shard is set go to that shard: a transaction keeps the connection of its
+ * first statement, so the shard must be set before it.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {}
+
+    /**
+     * @return the shard set for the current thread, or {@code null} if none.
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run an action on a shard, then restore the previous shard.
+     */
+    public static <T> T call(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void run(int shard, Runnable action) {
+        call(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
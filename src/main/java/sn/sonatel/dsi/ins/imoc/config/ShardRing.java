@@ -0,0 +1,56 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Consistent hash ring mapping a login to a shard.
+ * <p>
+ * Each shard is placed on the ring at several points derived from its name, and a login belongs to the shard of
+ * the first point following its hash. Adding a shard only moves the logins that fall just before its points,
+ * about one user out of the new number of shards.
+ */
+public class ShardRing {
+
+    private final List<String> names;
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    /**
+     * @param names the names of the shards, by index.
+     * @param virtualNodes the number of points of each shard.
+     */
+    public ShardRing(List<String> names, int virtualNodes) {
+        this.names = List.copyOf(names);
+        for (int shard = 0; shard < names.size(); shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.putIfAbsent(hash(names.get(shard) + '#' + node), shard);
+            }
+        }
+    }
+
+    /**
+     * @param userLogin the login, matched ignoring case.
+     * @return the index of the shard holding the notifications of the user.
+     */
+    public int shardFor(String userLogin) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(userLogin.toLowerCase()));
+        return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String name(int shard) {
+        return names.get(shard);
+    }
+
+    private static long hash(String key) {
+        return ByteBuffer.wrap(DigestUtils.md5Digest(key.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+}
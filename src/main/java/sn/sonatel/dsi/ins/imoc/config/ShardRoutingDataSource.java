@@ -0,0 +1,39 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import sn.sonatel.dsi.ins.imoc.security.SecurityUtils;
+
+/**
+ * Routes each connection to a shard: the one set in the {@link ShardContext}, else the shard of the current user,
+ * else the first shard, {@code spring.datasource}.
+ * <p>
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so that the
+ * shard can still be chosen after the transaction has begun.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ShardRing shardRing;
+
+    public ShardRoutingDataSource(List<DataSource> shards, ShardRing shardRing) {
+        this.shardRing = shardRing;
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        if (shard != null) {
+            return shard;
+        }
+        return SecurityUtils.getCurrentUserLogin().map(shardRing::shardFor).orElse(0);
+    }
+}
@@ -0,0 +1,144 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import liquibase.integration.spring.SpringLiquibase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import tech.jhipster.config.JHipsterConstants;
+
+/**
+ * Spreads the notifications over several databases, see {@link ShardRoutingDataSource}.
+ * <p>
+ * The first shard is {@code spring.datasource}, migrated by {@link LiquibaseConfiguration}; the shards of
+ * {@code application.sharding.shards} are migrated here, at startup. Each shard draws its ids from its own
+ * range, so that ids stay unique across shards and rows can be moved from one shard to another.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+    /**
+     * Size of the id range of each shard: the ids of the shard {@code n} start at {@code n * SHARD_ID_RANGE}.
+     */
+    public static final long SHARD_ID_RANGE = 1L << 48;
+
+    private static final String FIRST_SHARD_NAME = "primary";
+
+    private final Logger log = LoggerFactory.getLogger(ShardingConfiguration.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ShardRing shardRing(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Sharding properties = applicationProperties.getSharding();
+        List<String> names = new ArrayList<>();
+        names.add(FIRST_SHARD_NAME);
+        properties.getShards().forEach(shard -> names.add(shard.getName()));
+        return new ShardRing(names, properties.getVirtualNodes());
+    }
+
+    @Bean
+    public ShardDataSources shardDataSources(
+        HikariDataSource primaryDataSource,
+        ApplicationProperties applicationProperties,
+        LiquibaseProperties liquibaseProperties,
+        ResourceLoader resourceLoader,
+        Environment env
+    ) throws Exception {
+        List<HikariDataSource> shards = new ArrayList<>();
+        shards.add(primaryDataSource);
+        for (ApplicationProperties.Sharding.Shard properties : applicationProperties.getSharding().getShards()) {
+            HikariDataSource shard = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+            // Mêmes réglages que le premier shard, hormis la taille du pool
+            shard.setPoolName(primaryDataSource.getPoolName() + "-" + properties.getName());
+            shard.setAutoCommit(primaryDataSource.isAutoCommit());
+            shard.setMaximumPoolSize(properties.getMaximumPoolSize());
+            shard.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+            shards.add(shard);
+        }
+        ShardDataSources shardDataSources = new ShardDataSources(shards);
+        boolean migrate =
+            liquibaseProperties.isEnabled() && !env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_NO_LIQUIBASE));
+        for (int index = 1; index < shards.size(); index++) {
+            if (migrate) {
+                migrate(shards.get(index), liquibaseProperties, resourceLoader);
+            }
+            reserveIdRange(shards.get(index), index);
+        }
+        return shardDataSources;
+    }
+
+    /**
+     * The data source used by JPA and the JDBC repositories.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources, ShardRing shardRing) {
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(new ArrayList<>(shardDataSources.shards()), shardRing);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private void migrate(DataSource shard, LiquibaseProperties liquibaseProperties, ResourceLoader resourceLoader) throws Exception {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(shard);
+        liquibase.setResourceLoader(resourceLoader);
+        liquibase.setChangeLog("classpath:config/liquibase/master.xml");
+        liquibase.setContexts(liquibaseProperties.getContexts());
+        liquibase.setDefaultSchema(liquibaseProperties.getDefaultSchema());
+        liquibase.setLiquibaseSchema(liquibaseProperties.getLiquibaseSchema());
+        liquibase.setDatabaseChangeLogLockTable(liquibaseProperties.getDatabaseChangeLogLockTable());
+        liquibase.setDatabaseChangeLogTable(liquibaseProperties.getDatabaseChangeLogTable());
+        liquibase.setLabelFilter(liquibaseProperties.getLabelFilter());
+        liquibase.setChangeLogParameters(liquibaseProperties.getParameters());
+        liquibase.afterPropertiesSet();
+    }
+
+    // Une seule fois par shard : la séquence n'est avancée que si elle est encore sous le début de sa plage
+    private void reserveIdRange(DataSource shard, int index) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+        long start = index * SHARD_ID_RANGE;
+        Long next = jdbcTemplate.queryForObject("SELECT next_not_cached_value FROM sequence_generator", Long.class);
+        if (next != null && next < start) {
+            jdbcTemplate.execute("ALTER SEQUENCE sequence_generator RESTART WITH " + start);
+            log.info("Shard {} : identifiants à partir de {}", index, start);
+        }
+    }
+
+    /**
+     * The connection pools of the shards, by index.
+     */
+    public record ShardDataSources(List<HikariDataSource> shards) implements DisposableBean {
+        @Override
+        public void destroy() {
+            // Le premier shard est un bean à part entière, fermé par Spring
+            shards.subList(1, shards.size()).forEach(HikariDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import java.util.function.Supplier;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Priority class of the tasks submitted to the {@code taskExecutor}, see {@link AdaptiveTaskExecutor}.
+ * <p>
+ * A task takes the priority set by {@link #call(Supplier)} around its submission; without one, tasks submitted while
+ * handling a request are {@link #INTERACTIVE}, the others {@link #DEFAULT}.
+ */
+public enum TaskPriority {
+    INTERACTIVE,
+    DEFAULT,
+    BULK;
+
+    private static final ThreadLocal<TaskPriority> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the priority of the tasks submitted by the current thread.
+     */
+    public static TaskPriority current() {
+        TaskPriority priority = CURRENT.get();
+        if (priority != null) {
+            return priority;
+        }
+        return RequestContextHolder.getRequestAttributes() != null ? INTERACTIVE : DEFAULT;
+    }
+
+    /**
+     * Run an action whose task submissions get this priority.
+     */
+    public <T> T call(Supplier<T> action) {
+        TaskPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.undertow.UndertowDeploymentInfoCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import sn.sonatel.dsi.ins.imoc.security.jwt.TokenProvider;
+import sn.sonatel.dsi.ins.imoc.service.NotificationService;
+import sn.sonatel.dsi.ins.imoc.service.PollHintService;
+import sn.sonatel.dsi.ins.imoc.web.filter.UnreadCountHttpHandler;
+
+/**
+ * Installs the {@link UnreadCountHttpHandler} in front of the servlet deployment, when
+ * {@code application.fast-path.unread-count} is set.
+ * <p>
+ * The handler skips the servlet filters, so it is left out while the rate or concurrency limits are enabled: the
+ * unread polls would escape them.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.fast-path", name = "unread-count", havingValue = "true")
+public class UnreadCountFastPathConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(UnreadCountFastPathConfiguration.class);
+
+    @Bean
+    public UndertowDeploymentInfoCustomizer unreadCountDeploymentInfoCustomizer(
+        ApplicationProperties applicationProperties,
+        ObjectProvider<TokenProvider> tokenProvider,
+        ObjectProvider<NotificationService> notificationService,
+        ObjectProvider<PollHintService> pollHintService
+    ) {
+        return deploymentInfo -> {
+            if (applicationProperties.getRateLimit().isEnabled() || applicationProperties.getConcurrencyLimit().isEnabled()) {
+                log.warn("Unread count fast path disabled: the rate and concurrency limits only apply to the servlet stack");
+                return;
+            }
+            log.info("Unread count answered by an Undertow handler on {}", UnreadCountHttpHandler.PATH);
+            deploymentInfo.addInitialHandlerChainWrapper(next ->
+                new UnreadCountHttpHandler(next, tokenProvider::getObject, notificationService::getObject, pollHintService::getObject)
+            );
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.boot.web.embedded.undertow.UndertowDeploymentInfoCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * Runs the servlet requests on virtual threads, when {@code spring.threads.virtual.enabled} is set on Java 21.
+ * <p>
+ * Undertow keeps its IO threads, but dispatches each request to a new virtual thread instead of its bounded worker
+ * pool: a request waiting for a database connection no longer holds a worker. The task executor and the scheduler
+ * follow the same property, see {@link AsyncConfiguration}.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(VirtualThreadsConfiguration.class);
+
+    @Bean
+    public UndertowDeploymentInfoCustomizer virtualThreadsDeploymentInfoCustomizer() {
+        return deploymentInfo -> {
+            log.info("Undertow requests dispatched to virtual threads");
+            deploymentInfo.setExecutor(new VirtualThreadTaskExecutor("undertow-request-"));
+            deploymentInfo.setAsyncExecutor(new VirtualThreadTaskExecutor("undertow-async-"));
+        };
+    }
+}
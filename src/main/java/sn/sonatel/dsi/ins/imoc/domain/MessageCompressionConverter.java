@@ -0,0 +1,29 @@
+package sn.sonatel.dsi.ins.imoc.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import sn.sonatel.dsi.ins.imoc.repository.MessageCodec;
+
+/**
+ * Compresses the large notification messages, see {@link MessageCodec}.
+ * Instantiated by Hibernate through the Spring bean container.
+ */
+@Converter
+public class MessageCompressionConverter implements AttributeConverter<String, String> {
+
+    private final MessageCodec messageCodec;
+
+    public MessageCompressionConverter(MessageCodec messageCodec) {
+        this.messageCodec = messageCodec;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String message) {
+        return messageCodec.encode(message);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String stored) {
+        return messageCodec.decode(stored);
+    }
+}
@@ -3,14 +3,16 @@ package sn.sonatel.dsi.ins.imoc.domain;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
+import java.util.Map;
 
 /**
  * A Notification.
  */
 @Entity
 @Table(name = "notification")
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE)
 @SuppressWarnings("common-java:DuplicatedBlocks")
-public class Notification implements Serializable {
+public class Notification extends AbstractAuditingEntity<Long> implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
@@ -20,8 +22,12 @@ public class Notification implements Serializable {
     @Column(name = "id")
     private Long id;
 
+    /**
+     * The rendered text, {@code null} when the notification is rendered from {@link #templateKey} at read time.
+     */
     @Lob
-    @Column(name = "message", nullable = false)
+    @Convert(converter = MessageCompressionConverter.class)
+    @Column(name = "message")
     private String message;
 
     @Column(name = "reservation_id")
@@ -39,6 +45,32 @@ public class Notification implements Serializable {
     @Column(name = "jhi_read", nullable = false)
     private Boolean read;
 
+    @Size(max = 50)
+    @Column(name = "kind", length = 50)
+    private String kind;
+
+    @NotNull
+    @Column(name = "occurrences", nullable = false)
+    private Integer occurrences = 1;
+
+    /**
+     * Set on the notifications created in coalescing mode: unique per user, reservation, kind and time window.
+     * Cleared once the notification is read or deleted, so that the next repeated notification creates a new row.
+     */
+    @Column(name = "coalesce_key", length = 64, unique = true)
+    private String coalesceKey;
+
+    /**
+     * Key of the message template in the {@code i18n/messages} bundles.
+     */
+    @Size(max = 100)
+    @Column(name = "template_key", length = 100)
+    private String templateKey;
+
+    @Convert(converter = TemplateParamsConverter.class)
+    @Column(name = "template_params", length = 2000)
+    private Map<String, String> templateParams;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -104,6 +136,7 @@ public class Notification implements Serializable {
 
     public void setDeleted(Boolean deleted) {
         this.deleted = deleted;
+        releaseCoalesceKeyIf(deleted);
     }
 
     public Boolean getRead() {
@@ -117,6 +150,73 @@ public class Notification implements Serializable {
 
     public void setRead(Boolean read) {
         this.read = read;
+        releaseCoalesceKeyIf(read);
+    }
+
+    private void releaseCoalesceKeyIf(Boolean flag) {
+        if (Boolean.TRUE.equals(flag)) {
+            this.coalesceKey = null;
+        }
+    }
+
+    public String getKind() {
+        return this.kind;
+    }
+
+    public Notification kind(String kind) {
+        this.setKind(kind);
+        return this;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public Integer getOccurrences() {
+        return this.occurrences;
+    }
+
+    public Notification occurrences(Integer occurrences) {
+        this.setOccurrences(occurrences);
+        return this;
+    }
+
+    public void setOccurrences(Integer occurrences) {
+        this.occurrences = occurrences;
+    }
+
+    public String getCoalesceKey() {
+        return this.coalesceKey;
+    }
+
+    public void setCoalesceKey(String coalesceKey) {
+        this.coalesceKey = coalesceKey;
+    }
+
+    public String getTemplateKey() {
+        return this.templateKey;
+    }
+
+    public Notification templateKey(String templateKey) {
+        this.setTemplateKey(templateKey);
+        return this;
+    }
+
+    public void setTemplateKey(String templateKey) {
+        this.templateKey = templateKey;
+    }
+
+    public Map<String, String> getTemplateParams() {
+        return this.templateParams;
+    }
+
+    public Notification templateParams(Map<String, String> templateParams) {
+        this.setTemplateParams(templateParams);
+        return this;
+    }
+
+    public void setTemplateParams(Map<String, String> templateParams) {
+        this.templateParams = templateParams;
     }
 
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
@@ -148,6 +248,12 @@ public class Notification implements Serializable {
             ", userLogin='" + getUserLogin() + "'" +
             ", deleted='" + getDeleted() + "'" +
             ", read='" + getRead() + "'" +
+            ", kind='" + getKind() + "'" +
+            ", occurrences=" + getOccurrences() +
+            ", templateKey='" + getTemplateKey() + "'" +
+            ", templateParams=" + getTemplateParams() +
+            ", createdDate='" + getCreatedDate() + "'" +
+            ", lastModifiedDate='" + getLastModifiedDate() + "'" +
             "}";
     }
 }
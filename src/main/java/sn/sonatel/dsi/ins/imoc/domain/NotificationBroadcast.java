@@ -0,0 +1,122 @@
+package sn.sonatel.dsi.ins.imoc.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A notification sent to many users: the message is stored once, and each
+ * recipient only gets a row referencing it in the {@code notification_recipient} table.
+ */
+@Entity
+@Table(name = "notification_broadcast")
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class NotificationBroadcast implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Même séquence que Notification : les identifiants des deux tables ne se chevauchent pas
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @Lob
+    @Convert(converter = MessageCompressionConverter.class)
+    @Column(name = "message", nullable = false)
+    private String message;
+
+    @Size(max = 50)
+    @Column(name = "kind", length = 50)
+    private String kind;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    // jhipster-needle-entity-add-field - JHipster will add fields here
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public NotificationBroadcast id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+
+    public NotificationBroadcast message(String message) {
+        this.setMessage(message);
+        return this;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getKind() {
+        return this.kind;
+    }
+
+    public NotificationBroadcast kind(String kind) {
+        this.setKind(kind);
+        return this;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public Instant getCreatedDate() {
+        return this.createdDate;
+    }
+
+    public NotificationBroadcast createdDate(Instant createdDate) {
+        this.setCreatedDate(createdDate);
+        return this;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NotificationBroadcast)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((NotificationBroadcast) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "NotificationBroadcast{" +
+            "id=" + getId() +
+            ", message='" + getMessage() + "'" +
+            ", kind='" + getKind() + "'" +
+            ", createdDate='" + getCreatedDate() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,197 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.springframework.stereotype.Component;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+
+/**
+ * Encodes the notification messages as stored in the {@code message} columns.
+ * <p>
+ * Messages longer than {@code application.compression.min-size} are deflated, and stored as
+ * {@code \u0001z<length>:<base64>} when this is shorter than the plain text. Plain text starting
+ * with {@code \u0001} is stored escaped as {@code \u0001p<text>}, anything else is stored as is,
+ * so that the rows written before compression was enabled are still read correctly.
+ * <p>
+ * The deflaters, inflaters and their buffers are pooled.
+ */
+@Component
+public class MessageCodec {
+
+    public static final String METRIC_PREFIX = "notification.message.codec";
+
+    private static final char MARKER = '\u0001';
+
+    private static final char COMPRESSED = 'z';
+
+    private static final char ESCAPED = 'p';
+
+    private static final int MAX_POOLED_CONTEXTS = 64;
+
+    private final boolean enabled;
+
+    private final int minSize;
+
+    private final ConcurrentLinkedQueue<Context> contexts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooledContexts = new AtomicInteger();
+
+    private final Counter plainBytes;
+
+    private final Counter storedBytes;
+
+    private final Timer decodeTimer;
+
+    public MessageCodec(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.enabled = applicationProperties.getCompression().isEnabled();
+        this.minSize = applicationProperties.getCompression().getMinSize();
+        this.plainBytes = Counter.builder(METRIC_PREFIX + ".bytes").tag("form", "plain").baseUnit("bytes").register(meterRegistry);
+        this.storedBytes = Counter.builder(METRIC_PREFIX + ".bytes").tag("form", "stored").baseUnit("bytes").register(meterRegistry);
+        this.decodeTimer = Timer.builder(METRIC_PREFIX + ".decode").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return {@code true} if the stored value is plain text that would be compressed by {@link #encode(String)}.
+     */
+    public boolean isCompressible(String stored) {
+        return enabled && stored != null && stored.length() >= minSize && stored.charAt(0) != MARKER;
+    }
+
+    public String encode(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+        if (enabled && message.length() >= minSize) {
+            String compressed = compress(message);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        return message.charAt(0) == MARKER ? MARKER + String.valueOf(ESCAPED) + message : message;
+    }
+
+    public String decode(String stored) {
+        if (stored == null || stored.length() < 2 || stored.charAt(0) != MARKER) {
+            return stored;
+        }
+        if (stored.charAt(1) == ESCAPED) {
+            return stored.substring(2);
+        }
+        if (stored.charAt(1) != COMPRESSED) {
+            return stored;
+        }
+        long start = System.nanoTime();
+        Context context = acquire();
+        try {
+            int separator = stored.indexOf(':', 2);
+            int length = Integer.parseInt(stored, 2, separator, 10);
+            byte[] input = context.input(stored.length() - separator - 1);
+            int inputLength = Base64.getDecoder().decode(stored.substring(separator + 1).getBytes(StandardCharsets.ISO_8859_1), input);
+            byte[] output = context.output(length);
+            context.inflater.setInput(input, 0, inputLength);
+            int read = 0;
+            while (read < length && !context.inflater.finished() && !context.inflater.needsInput()) {
+                read += context.inflater.inflate(output, read, length - read);
+            }
+            // Un message tronqué ne doit pas être rendu comme s'il était complet
+            if (read != length) {
+                throw new DataFormatException("Inflated " + read + " bytes instead of " + length);
+            }
+            return new String(output, 0, read, StandardCharsets.UTF_8);
+        } catch (DataFormatException | RuntimeException e) {
+            throw new IllegalStateException("Unable to decode a compressed notification message", e);
+        } finally {
+            release(context);
+            decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Renvoie null quand la forme compressée n'est pas plus courte que le texte
+    private String compress(String message) {
+        byte[] plain = message.getBytes(StandardCharsets.UTF_8);
+        Context context = acquire();
+        try {
+            byte[] output = context.output(plain.length + 64);
+            context.deflater.setInput(plain);
+            context.deflater.finish();
+            int written = 0;
+            while (!context.deflater.finished() && written < output.length) {
+                written += context.deflater.deflate(output, written, output.length - written);
+            }
+            if (!context.deflater.finished()) {
+                return null;
+            }
+            // Le base64 ajoute un tiers : inutile d'encoder si le résultat ne peut pas être plus court
+            String header = MARKER + String.valueOf(COMPRESSED) + plain.length + ':';
+            if (header.length() + 4 * ((written + 2) / 3) >= message.length()) {
+                return null;
+            }
+            String stored = header + Base64.getEncoder().encodeToString(Arrays.copyOf(output, written));
+            plainBytes.increment(plain.length);
+            storedBytes.increment(stored.length());
+            return stored;
+        } finally {
+            release(context);
+        }
+    }
+
+    private Context acquire() {
+        Context context = contexts.poll();
+        if (context == null) {
+            return new Context();
+        }
+        pooledContexts.decrementAndGet();
+        return context;
+    }
+
+    private void release(Context context) {
+        context.deflater.reset();
+        context.inflater.reset();
+        if (pooledContexts.incrementAndGet() <= MAX_POOLED_CONTEXTS) {
+            contexts.offer(context);
+        } else {
+            pooledContexts.decrementAndGet();
+            context.deflater.end();
+            context.inflater.end();
+        }
+    }
+
+    private static final class Context {
+
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        private final Inflater inflater = new Inflater();
+
+        private byte[] input = new byte[4096];
+
+        private byte[] output = new byte[4096];
+
+        byte[] input(int size) {
+            if (input.length < size) {
+                input = new byte[Math.max(size, input.length * 2)];
+            }
+            return input;
+        }
+
+        byte[] output(int size) {
+            if (output.length < size) {
+                output = new byte[Math.max(size, output.length * 2)];
+            }
+            return output;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.springframework.stereotype.Repository;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+
+/**
+ * Cold storage of the archived notifications, in local append-only segment files.
+ * <p>
+ * Each archive run writes, per month of creation, one immutable segment ({@code .seg}) holding one
+ * deflated block per user, and its index ({@code .idx}) giving the position of each user block.
+ * Segments are memory-mapped on first read, and only the blocks of the requested user are inflated.
+ * A segment becomes visible once its index is written, so a partially written segment is never read.
+ * <p>
+ * The list of the segments is kept in memory: it is refreshed after each segment written here, and every
+ * {@code application.archive.refresh} for the segments written by the other instances. At most
+ * {@code application.archive.open-segments} segments stay mapped, the least used being released first.
+ */
+@Repository
+public class NotificationArchiveRepository {
+
+    private static final int INDEX_MAGIC = 0x4e494458; // "NIDX"
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+
+    private final long refreshNanos;
+
+    private final Cache<Path, Segment> segments;
+
+    // Index des segments visibles, triés par nom ; null tant que le répertoire n'a pas été lu
+    private volatile List<Path> indexPaths;
+
+    private volatile long listedAt;
+
+    public NotificationArchiveRepository(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Archive archive = applicationProperties.getArchive();
+        this.directory = Path.of(archive.getDirectory());
+        this.refreshNanos = archive.getRefresh().toNanos();
+        this.segments = Caffeine.newBuilder().maximumSize(archive.getOpenSegments()).executor(Runnable::run).build();
+    }
+
+    /**
+     * An archived notification, the message being already decoded.
+     */
+    public record ArchivedNotification(
+        long id,
+        String message,
+        Long reservationId,
+        String userLogin,
+        boolean deleted,
+        boolean read,
+        String kind,
+        int occurrences,
+        String templateKey,
+        String templateParams,
+        Instant createdDate
+    ) {}
+
+    /**
+     * Write a new segment.
+     *
+     * @param timeRange the time range of the segment, part of its name, for example {@code 2025-03}.
+     * @param notificationsByUser the notifications to archive, by lower-cased login.
+     */
+    public void writeSegment(String timeRange, Map<String, List<ArchivedNotification>> notificationsByUser) {
+        String name = timeRange + "_" + System.currentTimeMillis();
+        Path segmentPath = directory.resolve(name + SEGMENT_SUFFIX);
+        Path indexPath = directory.resolve(name + INDEX_SUFFIX);
+        try {
+            Files.createDirectories(directory);
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(index);
+            indexOut.writeInt(INDEX_MAGIC);
+            indexOut.writeInt(notificationsByUser.size());
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long offset = 0;
+                for (Map.Entry<String, List<ArchivedNotification>> entry : notificationsByUser.entrySet()) {
+                    byte[] raw = encode(entry.getValue());
+                    byte[] block = deflate(deflater, raw);
+                    // Les blocs sont lus dans un mapping, adressé en int
+                    if (offset + block.length > Integer.MAX_VALUE) {
+                        throw new IOException("Archive segment larger than 2 GB, lower application.archive.segment-size");
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(block);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    indexOut.writeUTF(entry.getKey());
+                    indexOut.writeLong(offset);
+                    indexOut.writeInt(block.length);
+                    indexOut.writeInt(raw.length);
+                    offset += block.length;
+                }
+                channel.force(true);
+            } finally {
+                deflater.end();
+            }
+            // L'index est écrit en dernier, de façon atomique : il rend le segment visible
+            Path temporaryIndex = directory.resolve(name + INDEX_SUFFIX + ".tmp");
+            Files.write(temporaryIndex, index.toByteArray(), StandardOpenOption.CREATE_NEW, StandardOpenOption.SYNC);
+            Files.move(temporaryIndex, indexPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the archive segment " + segmentPath, e);
+        }
+        refresh();
+    }
+
+    /**
+     * Read the archived notifications of a user, from all the segments.
+     *
+     * @param userLogin the login of the user, matched ignoring case.
+     * @return the notifications, in no particular order.
+     */
+    public List<ArchivedNotification> findByUserLogin(String userLogin) {
+        String login = userLogin.toLowerCase();
+        List<ArchivedNotification> notifications = new ArrayList<>();
+        List<Path> paths = indexPaths;
+        if (paths == null || System.nanoTime() - listedAt > refreshNanos) {
+            paths = refresh();
+        }
+        for (Path indexPath : paths) {
+            Segment segment = segments.get(indexPath, NotificationArchiveRepository::openSegment);
+            IndexEntry entry = segment.index.get(login);
+            if (entry != null) {
+                notifications.addAll(decode(inflate(segment.data.slice(entry.offset, entry.length), entry.rawLength)));
+            }
+        }
+        return notifications;
+    }
+
+    /**
+     * List the segments of the archive directory again.
+     *
+     * @return the index files of the segments, sorted by name.
+     */
+    public synchronized List<Path> refresh() {
+        List<Path> result = List.of();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                result = files
+                    .filter(path -> path.getFileName().toString().endsWith(INDEX_SUFFIX))
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to list the archive segments in " + directory, e);
+            }
+        }
+        indexPaths = result;
+        listedAt = System.nanoTime();
+        return result;
+    }
+
+    private static Segment openSegment(Path indexPath) {
+        String indexName = indexPath.getFileName().toString();
+        Path segmentPath = indexPath.resolveSibling(indexName.substring(0, indexName.length() - INDEX_SUFFIX.length()) + SEGMENT_SUFFIX);
+        try (
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(indexPath)));
+            FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)
+        ) {
+            if (in.readInt() != INDEX_MAGIC) {
+                throw new IOException("Not an archive index: " + indexPath);
+            }
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive segment larger than 2 GB: " + segmentPath);
+            }
+            int count = in.readInt();
+            Map<String, IndexEntry> index = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String login = in.readUTF();
+                long offset = in.readLong();
+                int length = in.readInt();
+                int rawLength = in.readInt();
+                if (offset < 0 || length < 0 || rawLength < 0 || offset + length > size) {
+                    throw new IOException("Block of " + login + " out of the archive segment " + segmentPath);
+                }
+                index.put(login, new IndexEntry((int) offset, length, rawLength));
+            }
+            // Le mapping reste valide après la fermeture du canal, et est libéré avec le segment
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new Segment(data, index);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the archive segment " + segmentPath, e);
+        }
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(ByteBuffer block, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished() && !inflater.needsInput()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            if (read != rawLength) {
+                throw new DataFormatException("Inflated " + read + " bytes instead of " + rawLength);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] encode(List<ArchivedNotification> notifications) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(notifications.size());
+        for (ArchivedNotification notification : notifications) {
+            out.writeLong(notification.id());
+            writeString(out, notification.message());
+            out.writeLong(notification.reservationId() == null ? Long.MIN_VALUE : notification.reservationId());
+            writeString(out, notification.userLogin());
+            out.writeBoolean(notification.deleted());
+            out.writeBoolean(notification.read());
+            writeString(out, notification.kind());
+            out.writeInt(notification.occurrences());
+            writeString(out, notification.templateKey());
+            writeString(out, notification.templateParams());
+            out.writeLong(notification.createdDate() == null ? Long.MIN_VALUE : notification.createdDate().toEpochMilli());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<ArchivedNotification> decode(byte[] raw) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            int count = in.readInt();
+            List<ArchivedNotification> notifications = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                String message = readString(in);
+                long reservationId = in.readLong();
+                String userLogin = readString(in);
+                boolean deleted = in.readBoolean();
+                boolean read = in.readBoolean();
+                String kind = readString(in);
+                int occurrences = in.readInt();
+                String templateKey = readString(in);
+                String templateParams = readString(in);
+                long createdDate = in.readLong();
+                notifications.add(
+                    new ArchivedNotification(
+                        id,
+                        message,
+                        reservationId == Long.MIN_VALUE ? null : reservationId,
+                        userLogin,
+                        deleted,
+                        read,
+                        kind,
+                        occurrences,
+                        templateKey,
+                        templateParams,
+                        createdDate == Long.MIN_VALUE ? null : Instant.ofEpochMilli(createdDate)
+                    )
+                );
+            }
+            return notifications;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupted archive block", e);
+        }
+    }
+
+    // writeUTF est limité à 64 Ko : longueur sur 4 octets, -1 pour null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record IndexEntry(int offset, int length, int rawLength) {}
+
+    private record Segment(MappedByteBuffer data, Map<String, IndexEntry> index) {}
+}
@@ -0,0 +1,12 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+import sn.sonatel.dsi.ins.imoc.domain.NotificationBroadcast;
+
+/**
+ * Spring Data JPA repository for the NotificationBroadcast entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface NotificationBroadcastRepository extends JpaRepository<NotificationBroadcast, Long> {}
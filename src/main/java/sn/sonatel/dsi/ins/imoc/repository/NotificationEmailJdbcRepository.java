@@ -0,0 +1,142 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Plain JDBC access to the {@code notification_email} outbox: the e-mails to send, written in the transaction of
+ * their notification, and the dead letters.
+ */
+@Repository
+public class NotificationEmailJdbcRepository {
+
+    private static final String INSERT =
+        "INSERT INTO notification_email (id, notification_id, user_login, subject, body, html_body, attempts, next_attempt_at, dead, " +
+        "created_date) VALUES (NEXT VALUE FOR sequence_generator, ?, ?, ?, ?, ?, 0, UTC_TIMESTAMP(6), false, UTC_TIMESTAMP(6))";
+
+    // Les lignes déjà prises par un autre nœud sont sautées
+    private static final String SELECT_DUE =
+        "SELECT id, notification_id, user_login, email_to, subject, body, html_body, attempts, next_attempt_at FROM notification_email " +
+        "WHERE dead = false AND next_attempt_at <= ? ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String UPDATE_FAILED =
+        "UPDATE notification_email SET attempts = ?, next_attempt_at = ?, last_error = ?, dead = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public NotificationEmailJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * @param userLogin the recipient, whose address is read when the e-mail is sent.
+     * @param htmlBody the HTML body, sent along the plain text one, may be {@code null}.
+     */
+    public void insert(Long notificationId, String userLogin, String subject, String body, String htmlBody) {
+        jdbcTemplate.update(INSERT, notificationId, userLogin, subject, body, htmlBody);
+    }
+
+    /**
+     * Lock the e-mails due at the given date, the oldest first, skipping the ones locked elsewhere. Must run in a
+     * transaction, which should also lease the rows with {@link #lease(List, Instant)}.
+     */
+    public List<Email> lockDue(Instant now, int limit) {
+        return jdbcTemplate.query(
+            SELECT_DUE,
+            (rs, rowNum) ->
+                new Email(
+                    rs.getLong(1),
+                    rs.getObject(2, Long.class),
+                    rs.getString(3),
+                    rs.getString(4),
+                    rs.getString(5),
+                    rs.getString(6),
+                    rs.getString(7),
+                    rs.getInt(8),
+                    NotificationJdbcRepository.getInstant(rs, 9)
+                ),
+            utc(now),
+            limit
+        );
+    }
+
+    /**
+     * Push back the next attempt of e-mails being sent: if the sender dies, they are sent again after the lease.
+     */
+    public void lease(List<Long> ids, Instant until) {
+        namedParameterJdbcTemplate.update(
+            "UPDATE notification_email SET next_attempt_at = :until WHERE id IN (:ids)",
+            Map.of("ids", ids, "until", utc(until))
+        );
+    }
+
+    public void deleteByIdIn(List<Long> ids) {
+        namedParameterJdbcTemplate.update("DELETE FROM notification_email WHERE id IN (:ids)", Map.of("ids", ids));
+    }
+
+    /**
+     * Record a failed attempt.
+     *
+     * @param dead whether the e-mail is given up, and kept as a dead letter.
+     */
+    public void markFailed(long id, int attempts, Instant nextAttemptAt, String error, boolean dead) {
+        jdbcTemplate.update(UPDATE_FAILED, attempts, utc(nextAttemptAt), error, dead, id);
+    }
+
+    public long countPending() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM notification_email WHERE dead = false", Long.class);
+    }
+
+    /**
+     * @return the date of the oldest due e-mail, or {@code null} if none is due.
+     */
+    public Instant findOldestDue(Instant now) {
+        return jdbcTemplate.query(
+            "SELECT min(next_attempt_at) FROM notification_email WHERE dead = false AND next_attempt_at <= ?",
+            rs -> rs.next() ? NotificationJdbcRepository.getInstant(rs, 1) : null,
+            utc(now)
+        );
+    }
+
+    // Les dates sont stockées en UTC, voir hibernate.jdbc.time_zone
+    private static Object utc(Instant date) {
+        return date.atOffset(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    /**
+     * An e-mail of the outbox.
+     *
+     * @param userLogin the recipient.
+     * @param emailTo the address of the recipient, {@code null} until read from its account.
+     * @param htmlBody the HTML body, or {@code null} for a plain text e-mail.
+     */
+    public record Email(
+        long id,
+        Long notificationId,
+        String userLogin,
+        String emailTo,
+        String subject,
+        String body,
+        String htmlBody,
+        int attempts,
+        Instant nextAttemptAt
+    ) {
+        public Email withEmailTo(String address) {
+            return new Email(id, notificationId, userLogin, address, subject, body, htmlBody, attempts, nextAttemptAt);
+        }
+
+        // Le login, ou l'adresse des lignes écrites avant que le login soit conservé
+        public String recipient() {
+            return userLogin != null ? userLogin : emailTo;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Plain JDBC access to the notification table, for the paths where going through
+ * the JPA entity is too expensive. The rows changed here are evicted from the second-level cache,
+ * see {@link NotificationSecondLevelCache}.
+ */
+@Repository
+public class NotificationJdbcRepository {
+
+    /**
+     * Column order used by {@link #streamNonLueByUserLogin(String, RowCallbackHandler)}.
+     */
+    public static final int COLUMN_ID = 1;
+    public static final int COLUMN_MESSAGE = 2;
+    public static final int COLUMN_RESERVATION_ID = 3;
+    public static final int COLUMN_USER_LOGIN = 4;
+    public static final int COLUMN_DELETED = 5;
+    public static final int COLUMN_READ = 6;
+    public static final int COLUMN_KIND = 7;
+    public static final int COLUMN_OCCURRENCES = 8;
+    public static final int COLUMN_BROADCAST = 9;
+    public static final int COLUMN_TEMPLATE_KEY = 10;
+    public static final int COLUMN_TEMPLATE_PARAMS = 11;
+    public static final int COLUMN_CREATED_DATE = 12;
+
+    // Même prédicat que findAllByUserLoginIgnoreCaseAndDeletedIsFalseAndReadIsFalse, complété par les diffusions
+    private static final String SELECT_NON_LUE_BY_USER_LOGIN =
+        "SELECT id, message, reservation_id, user_login, deleted, jhi_read, kind, occurrences, false AS broadcast, " +
+        "template_key, template_params, created_date FROM notification " +
+        "WHERE upper(user_login) = upper(?) AND deleted = false AND jhi_read = false " +
+        "UNION ALL " +
+        NotificationRecipientJdbcRepository.SELECT_BY_USER_LOGIN +
+        NotificationRecipientJdbcRepository.NON_LUE +
+        " ORDER BY id";
+
+    // Une seule instruction atomique : la clé unique coalesce_key détecte la notification à regrouper,
+    // qui est forcément non lue et non supprimée, la clé étant effacée par la lecture et la suppression
+    private static final String UPSERT_COALESCED =
+        "INSERT INTO notification (id, message, reservation_id, user_login, deleted, jhi_read, kind, occurrences, coalesce_key, " +
+        "template_key, template_params, created_by, created_date, last_modified_by, last_modified_date) " +
+        "VALUES (NEXT VALUE FOR sequence_generator, ?, ?, ?, false, false, ?, 1, ?, ?, ?, ?, UTC_TIMESTAMP(6), ?, UTC_TIMESTAMP(6)) " +
+        "ON DUPLICATE KEY UPDATE message = VALUES(message), template_key = VALUES(template_key), " +
+        "template_params = VALUES(template_params), occurrences = occurrences + 1, " +
+        "last_modified_by = VALUES(last_modified_by), last_modified_date = VALUES(last_modified_date)";
+
+    private static final String SELECT_MESSAGES_AFTER_ID = "SELECT id, message FROM notification WHERE id > ? ORDER BY id LIMIT ?";
+
+    // La condition sur l'ancien message évite d'écraser une modification concurrente
+    private static final String UPDATE_MESSAGE = "UPDATE notification SET message = ? WHERE id = ? AND message = ?";
+
+    // Rétention : suppression par plage d'identifiants, pour ne verrouiller que quelques lignes à la fois
+    private static final String DELETE_EXPIRED_RANGE =
+        "DELETE FROM notification WHERE id >= ? AND id < ? AND (" +
+        "(deleted = true AND last_modified_date < ?) OR (jhi_read = true AND deleted = false AND last_modified_date < ?))";
+
+    // Plafond par utilisateur : les notifications supprimées, puis lues, puis les plus anciennes partent en premier
+    private static final String DELETE_OLDEST_BY_USER_LOGIN =
+        "DELETE FROM notification WHERE upper(user_login) = upper(?) ORDER BY deleted DESC, jhi_read DESC, id LIMIT ?";
+
+    // Archivage : seules les notifications lues quittent la table, le compteur des non lues reste exact
+    private static final String SELECT_ARCHIVABLE =
+        "SELECT id, message, reservation_id, user_login, deleted, jhi_read, kind, occurrences, false AS broadcast, " +
+        "template_key, template_params, created_date FROM notification " +
+        "WHERE id > ? AND id <= ? AND jhi_read = true ORDER BY id LIMIT ?";
+
+    // Écritures par identifiant : une seule instruction, et seules les lignes touchées quittent le cache de second niveau.
+    // Comme setRead et setDeleted de l'entité, la lecture et la suppression effacent la clé de regroupement.
+    private static final String UPDATE_BY_ID =
+        "UPDATE notification SET last_modified_date = UTC_TIMESTAMP(6), message = ?, reservation_id = ?, user_login = ?, " +
+        "deleted = ?, jhi_read = ?, kind = ?, template_key = ?, template_params = ?, " +
+        "coalesce_key = CASE WHEN ? = true OR ? = true THEN NULL ELSE coalesce_key END " +
+        "WHERE id = ? AND (? IS NULL OR upper(user_login) = upper(?))";
+
+    private static final String PARTIAL_UPDATE_BY_ID =
+        "UPDATE notification SET last_modified_date = UTC_TIMESTAMP(6), message = COALESCE(?, message), " +
+        "reservation_id = COALESCE(?, reservation_id), user_login = COALESCE(?, user_login), deleted = COALESCE(?, deleted), " +
+        "jhi_read = COALESCE(?, jhi_read), kind = COALESCE(?, kind), template_key = COALESCE(?, template_key), " +
+        "template_params = COALESCE(?, template_params), " +
+        "coalesce_key = CASE WHEN ? = true OR ? = true THEN NULL ELSE coalesce_key END " +
+        "WHERE id = ? AND (? IS NULL OR upper(user_login) = upper(?))";
+
+    private static final String MARK_READ_BY_ID_AND_USER_LOGIN =
+        "UPDATE notification SET last_modified_date = UTC_TIMESTAMP(6), jhi_read = true, coalesce_key = NULL " +
+        "WHERE id = ? AND upper(user_login) = upper(?)";
+
+    private static final String UPDATE_READ_BY_ID_IN_AND_USER_LOGIN =
+        "UPDATE notification SET last_modified_date = UTC_TIMESTAMP(6), jhi_read = :read, " +
+        "coalesce_key = CASE WHEN :read = true THEN NULL ELSE coalesce_key END " +
+        "WHERE id IN (:ids) AND upper(user_login) = upper(:userLogin)";
+
+    private static final String SOFT_DELETE_BY_ID_IN_AND_USER_LOGIN =
+        "UPDATE notification SET last_modified_date = UTC_TIMESTAMP(6), deleted = true, coalesce_key = NULL " +
+        "WHERE id IN (:ids) AND upper(user_login) = upper(:userLogin)";
+
+    private static final String DELETE_BY_ID_IN_AND_USER_LOGIN =
+        "DELETE FROM notification WHERE id IN (:ids) AND upper(user_login) = upper(:userLogin)";
+
+    private static final int FETCH_SIZE = 256;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final NotificationSecondLevelCache secondLevelCache;
+
+    public NotificationJdbcRepository(DataSource dataSource, NotificationSecondLevelCache secondLevelCache) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    /**
+     * Stream the unread and not deleted notifications of a user, personal and broadcast, one row at a time.
+     *
+     * @param userLogin the login of the user, matched ignoring case.
+     * @param rowHandler the handler called for each row, see the {@code COLUMN_*} constants.
+     */
+    public void streamNonLueByUserLogin(String userLogin, RowCallbackHandler rowHandler) {
+        jdbcTemplate.query(SELECT_NON_LUE_BY_USER_LOGIN, rowHandler, userLogin, userLogin);
+    }
+
+    /**
+     * @return the smallest and the largest notification ids, or {@code null} when there are no notifications.
+     */
+    public long[] findIdRange() {
+        return jdbcTemplate.query("SELECT min(id), max(id) FROM notification", rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[] { min, rs.getLong(2) };
+        });
+    }
+
+    /**
+     * @return the smallest id greater than or equal to the given one, or {@code null} if there are none.
+     */
+    public Long findMinIdFrom(long fromId) {
+        return jdbcTemplate.queryForObject("SELECT min(id) FROM notification WHERE id >= ?", Long.class, fromId);
+    }
+
+    /**
+     * @return the largest id of the notifications created before the given date, or {@code null} if there are none.
+     */
+    public Long findMaxIdCreatedBefore(Instant date) {
+        return jdbcTemplate.queryForObject("SELECT max(id) FROM notification WHERE created_date < ?", Long.class, utc(date));
+    }
+
+    /**
+     * Delete the notifications of an id range that are deleted, or read, since before the given dates.
+     *
+     * @return the number of deleted rows.
+     */
+    public int deleteExpiredInRange(long fromId, long toId, Instant deletedBefore, Instant readBefore) {
+        return evictAllIfAny(jdbcTemplate.update(DELETE_EXPIRED_RANGE, fromId, toId, utc(deletedBefore), utc(readBefore)));
+    }
+
+    /**
+     * Read the read notifications following an id, up to a maximum id, with the columns described by the {@code COLUMN_*} constants.
+     */
+    public void findArchivable(long afterId, long maxId, int limit, RowCallbackHandler rowHandler) {
+        jdbcTemplate.query(SELECT_ARCHIVABLE, rowHandler, afterId, maxId, limit);
+    }
+
+    /**
+     * Delete notifications that are still read: one marked unread in the meantime stays in the table.
+     */
+    public int deleteReadByIdIn(List<Long> ids) {
+        int deleted = namedParameterJdbcTemplate.update(
+            "DELETE FROM notification WHERE id IN (:ids) AND jhi_read = true",
+            Map.of("ids", ids)
+        );
+        secondLevelCache.evict(ids);
+        return deleted;
+    }
+
+    /**
+     * Replace every field of a notification in a single statement.
+     *
+     * @param ownerLogin the login the notification must belong to, or {@code null} for any owner.
+     * @param message the message, already encoded by {@link MessageCodec}.
+     * @param templateParams the template parameters, already serialized by {@link sn.sonatel.dsi.ins.imoc.domain.TemplateParamsConverter}.
+     * @return the number of updated rows, 0 when the notification does not exist or belongs to another user.
+     */
+    public int updateById(
+        long id,
+        String ownerLogin,
+        String message,
+        Long reservationId,
+        String userLogin,
+        Boolean deleted,
+        Boolean read,
+        String kind,
+        String templateKey,
+        String templateParams
+    ) {
+        return evictIfAny(
+            id,
+            jdbcTemplate.update(
+                UPDATE_BY_ID,
+                message,
+                reservationId,
+                userLogin,
+                deleted,
+                read,
+                kind,
+                templateKey,
+                templateParams,
+                read,
+                deleted,
+                id,
+                ownerLogin,
+                ownerLogin
+            )
+        );
+    }
+
+    /**
+     * Update the non-null fields of a notification in a single statement, the null ones keeping their value.
+     *
+     * @param ownerLogin the login the notification must belong to, or {@code null} for any owner.
+     * @param message the message, already encoded by {@link MessageCodec}, or {@code null} to keep it.
+     * @param templateParams the serialized template parameters, or {@code null} to keep them.
+     * @return the number of updated rows, 0 when the notification does not exist or belongs to another user.
+     */
+    public int partialUpdateById(
+        long id,
+        String ownerLogin,
+        String message,
+        Long reservationId,
+        String userLogin,
+        Boolean deleted,
+        Boolean read,
+        String kind,
+        String templateKey,
+        String templateParams
+    ) {
+        return evictIfAny(
+            id,
+            jdbcTemplate.update(
+                PARTIAL_UPDATE_BY_ID,
+                message,
+                reservationId,
+                userLogin,
+                deleted,
+                read,
+                kind,
+                templateKey,
+                templateParams,
+                read,
+                deleted,
+                id,
+                ownerLogin,
+                ownerLogin
+            )
+        );
+    }
+
+    /**
+     * Mark a notification of a user as read in a single statement.
+     *
+     * @return the number of updated rows, 0 when the user has no such notification.
+     */
+    public int markReadByIdAndUserLogin(long id, String userLogin) {
+        return evictIfAny(id, jdbcTemplate.update(MARK_READ_BY_ID_AND_USER_LOGIN, id, userLogin));
+    }
+
+    public int updateReadByIdInAndUserLogin(List<Long> ids, String userLogin, boolean read) {
+        return evictIfAny(
+            ids,
+            namedParameterJdbcTemplate.update(UPDATE_READ_BY_ID_IN_AND_USER_LOGIN, Map.of("ids", ids, "userLogin", userLogin, "read", read))
+        );
+    }
+
+    public int softDeleteByIdInAndUserLogin(List<Long> ids, String userLogin) {
+        return evictIfAny(
+            ids,
+            namedParameterJdbcTemplate.update(SOFT_DELETE_BY_ID_IN_AND_USER_LOGIN, Map.of("ids", ids, "userLogin", userLogin))
+        );
+    }
+
+    public int deleteByIdInAndUserLogin(List<Long> ids, String userLogin) {
+        return evictIfAny(
+            ids,
+            namedParameterJdbcTemplate.update(DELETE_BY_ID_IN_AND_USER_LOGIN, Map.of("ids", ids, "userLogin", userLogin))
+        );
+    }
+
+    public long countByUserLogin(String userLogin) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM notification WHERE upper(user_login) = upper(?)", Long.class, userLogin);
+    }
+
+    /**
+     * Delete the notifications of a user that should go first when the user holds too many:
+     * deleted ones, then read ones, each from the oldest.
+     *
+     * @return the number of deleted rows.
+     */
+    public int deleteOldestByUserLogin(String userLogin, int limit) {
+        return evictAllIfAny(jdbcTemplate.update(DELETE_OLDEST_BY_USER_LOGIN, userLogin, limit));
+    }
+
+    private int evictIfAny(long id, int affected) {
+        if (affected > 0) {
+            secondLevelCache.evict(id);
+        }
+        return affected;
+    }
+
+    private int evictIfAny(List<Long> ids, int affected) {
+        if (affected > 0) {
+            secondLevelCache.evict(ids);
+        }
+        return affected;
+    }
+
+    // Lignes supprimées sans que leurs identifiants soient connus : toute la région est vidée
+    private int evictAllIfAny(int deleted) {
+        if (deleted > 0) {
+            secondLevelCache.evictAll();
+        }
+        return deleted;
+    }
+
+    // Les dates sont stockées en UTC, voir hibernate.jdbc.time_zone
+    private static Object utc(Instant date) {
+        return date.atOffset(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    /**
+     * Read a date column written by Hibernate, in UTC.
+     */
+    public static Instant getInstant(ResultSet rs, int column) throws SQLException {
+        LocalDateTime dateTime = rs.getObject(column, LocalDateTime.class);
+        return dateTime == null ? null : dateTime.toInstant(ZoneOffset.UTC);
+    }
+
+    /**
+     * Read the stored messages, as is, of the notifications following an id.
+     *
+     * @param rowHandler the handler called for each row, with the id then the stored message.
+     */
+    public void findStoredMessagesAfterId(long afterId, int limit, RowCallbackHandler rowHandler) {
+        jdbcTemplate.query(SELECT_MESSAGES_AFTER_ID, rowHandler, afterId, limit);
+    }
+
+    /**
+     * Replace stored messages, each row being skipped if its message changed since it was read.
+     * The cached entities are kept: the stored message changes, but not the decoded one.
+     *
+     * @param rows the new stored message, the id and the previously stored message of each row.
+     */
+    public void updateStoredMessages(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(UPDATE_MESSAGE, rows);
+    }
+
+    /**
+     * Insert a notification, or if an unread one already exists with the same coalesce key, replace its message
+     * and increment its occurrences.
+     *
+     * @param templateParams the template parameters, already serialized by {@link sn.sonatel.dsi.ins.imoc.domain.TemplateParamsConverter}.
+     * @param auditor the login recorded as creator, or as last modifier when the notification already exists.
+     *
+     * @return the number of affected rows, as reported by MariaDB: 1 for an insert, 2 for an update.
+     */
+    public int upsertCoalesced(
+        String message,
+        Long reservationId,
+        String userLogin,
+        String kind,
+        String coalesceKey,
+        String templateKey,
+        String templateParams,
+        String auditor
+    ) {
+        int affected = jdbcTemplate.update(
+            UPSERT_COALESCED,
+            message,
+            reservationId,
+            userLogin,
+            kind,
+            coalesceKey,
+            templateKey,
+            templateParams,
+            auditor,
+            auditor
+        );
+        if (affected > 1) {
+            secondLevelCache.evict(
+                jdbcTemplate.queryForObject("SELECT id FROM notification WHERE coalesce_key = ?", Long.class, coalesceKey)
+            );
+        }
+        return affected;
+    }
+}
@@ -0,0 +1,124 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Plain JDBC access to the {@code notification_recipient} table, which links a
+ * {@link sn.sonatel.dsi.ins.imoc.domain.NotificationBroadcast} to each of its recipients.
+ * <p>
+ * Logins are stored lower-cased, so that every lookup can use the primary key index.
+ * The rows read by {@link #findByUserLogin(String, boolean, RowMapper)} have the same
+ * columns as the notification rows, see the {@code COLUMN_*} constants of {@link NotificationJdbcRepository}.
+ */
+@Repository
+public class NotificationRecipientJdbcRepository {
+
+    static final String SELECT_BY_USER_LOGIN =
+        "SELECT b.id, b.message, NULL AS reservation_id, r.user_login, r.deleted, r.jhi_read, b.kind, 1 AS occurrences, true AS broadcast, " +
+        "NULL AS template_key, NULL AS template_params, b.created_date " +
+        "FROM notification_recipient r JOIN notification_broadcast b ON b.id = r.broadcast_id " +
+        "WHERE r.user_login = lower(?)";
+
+    static final String NON_LUE = " AND r.deleted = false AND r.jhi_read = false";
+
+    private static final String INSERT_RECIPIENT =
+        "INSERT IGNORE INTO notification_recipient (broadcast_id, user_login, jhi_read, deleted) VALUES (?, lower(?), false, false)";
+
+    // Audience : tous les utilisateurs connus du service, c'est-à-dire ayant déjà reçu une notification
+    private static final String INSERT_AUDIENCE_RANGE =
+        "INSERT IGNORE INTO notification_recipient (broadcast_id, user_login, jhi_read, deleted) " +
+        "SELECT DISTINCT ?, lower(user_login), false, false FROM notification WHERE id >= ? AND id < ?";
+
+    private static final String RESERVATION_FILTER = " AND reservation_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public NotificationRecipientJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Add recipients to a broadcast, with one batched statement. Logins already recipients are ignored.
+     */
+    public void insertRecipients(long broadcastId, List<String> userLogins) {
+        jdbcTemplate.batchUpdate(INSERT_RECIPIENT, userLogins, userLogins.size(), (ps, login) -> {
+            ps.setLong(1, broadcastId);
+            ps.setString(2, login);
+        });
+    }
+
+    /**
+     * Add as recipients of a broadcast the users of the notifications whose id is in {@code [fromId, toId)},
+     * with a single {@code INSERT ... SELECT}.
+     *
+     * @param reservationId if not {@code null}, only the users notified about this reservation are added.
+     */
+    public void insertAudienceRange(long broadcastId, long fromId, long toId, Long reservationId) {
+        if (reservationId == null) {
+            jdbcTemplate.update(INSERT_AUDIENCE_RANGE, broadcastId, fromId, toId);
+        } else {
+            jdbcTemplate.update(INSERT_AUDIENCE_RANGE + RESERVATION_FILTER, broadcastId, fromId, toId, reservationId);
+        }
+    }
+
+    public long countByBroadcastId(long broadcastId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM notification_recipient WHERE broadcast_id = ?", Long.class, broadcastId);
+    }
+
+    public <T> List<T> findByUserLogin(String userLogin, boolean nonLueOnly, RowMapper<T> rowMapper) {
+        return jdbcTemplate.query(nonLueOnly ? SELECT_BY_USER_LOGIN + NON_LUE : SELECT_BY_USER_LOGIN, rowMapper, userLogin);
+    }
+
+    public long countNonLueByUserLogin(String userLogin) {
+        return jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM notification_recipient r WHERE r.user_login = lower(?)" + NON_LUE,
+            Long.class,
+            userLogin
+        );
+    }
+
+    public int updateReadByBroadcastIdInAndUserLogin(Collection<Long> broadcastIds, String userLogin, boolean read) {
+        return namedParameterJdbcTemplate.update(
+            "UPDATE notification_recipient SET jhi_read = :read WHERE broadcast_id IN (:ids) AND user_login = lower(:login)",
+            Map.of("read", read, "ids", broadcastIds, "login", userLogin)
+        );
+    }
+
+    public int softDeleteByBroadcastIdInAndUserLogin(Collection<Long> broadcastIds, String userLogin) {
+        return namedParameterJdbcTemplate.update(
+            "UPDATE notification_recipient SET deleted = true WHERE broadcast_id IN (:ids) AND user_login = lower(:login)",
+            Map.of("ids", broadcastIds, "login", userLogin)
+        );
+    }
+
+    public int deleteByBroadcastIdInAndUserLogin(Collection<Long> broadcastIds, String userLogin) {
+        return namedParameterJdbcTemplate.update(
+            "DELETE FROM notification_recipient WHERE broadcast_id IN (:ids) AND user_login = lower(:login)",
+            Map.of("ids", broadcastIds, "login", userLogin)
+        );
+    }
+
+    public int markAllReadByUserLogin(String userLogin) {
+        return jdbcTemplate.update(
+            "UPDATE notification_recipient SET jhi_read = true WHERE user_login = lower(?) AND jhi_read = false",
+            userLogin
+        );
+    }
+
+    public int softDeleteAllByUserLogin(String userLogin) {
+        return jdbcTemplate.update(
+            "UPDATE notification_recipient SET deleted = true WHERE user_login = lower(?) AND deleted = false",
+            userLogin
+        );
+    }
+}
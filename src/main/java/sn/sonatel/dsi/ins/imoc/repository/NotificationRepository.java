@@ -1,16 +1,18 @@
 package sn.sonatel.dsi.ins.imoc.repository;
 
-import feign.Param;
 import jakarta.transaction.Transactional;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import sn.sonatel.dsi.ins.imoc.domain.Notification;
 
 /**
  * Spring Data JPA repository for the Notification entity.
+ * <p>
+ * The single-statement updates live in {@link NotificationJdbcRepository}: a JPQL bulk update would empty the whole
+ * Notification region of the second-level cache, where those evict only the rows they change.
  */
 @SuppressWarnings("unused")
 @Repository
@@ -21,4 +23,8 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     List<Notification> findByUserLoginAndDeletedFalse(String userLogin);
     Optional<Notification> findByIdAndDeletedFalse(Long id);
     Long countByUserLoginAndReadFalseAndDeletedFalse(String userLogin);
+    Optional<Notification> findOneByCoalesceKey(String coalesceKey);
+
+    @Query("select n.userLogin from Notification n where n.id = :id")
+    Optional<String> findUserLoginById(@Param("id") Long id);
 }
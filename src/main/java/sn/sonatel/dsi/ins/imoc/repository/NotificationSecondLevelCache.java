@@ -0,0 +1,60 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sn.sonatel.dsi.ins.imoc.domain.Notification;
+
+/**
+ * Evicts from the Hibernate second-level cache the notifications written by plain JDBC, which Hibernate does not see.
+ * <p>
+ * Entries are evicted at once, and again once the transaction completes: a read running in between would otherwise
+ * put the old row back in the cache.
+ */
+@Component
+public class NotificationSecondLevelCache {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public NotificationSecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void evict(Long id) {
+        evict(List.of(id));
+    }
+
+    public void evict(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            List<Long> evicted = List.copyOf(ids);
+            run(cache -> evicted.forEach(id -> cache.evict(Notification.class, id)));
+        }
+    }
+
+    /**
+     * Evict every notification, after statements whose rows are not known one by one.
+     */
+    public void evictAll() {
+        run(cache -> cache.evict(Notification.class));
+    }
+
+    private void run(Consumer<Cache> eviction) {
+        Cache cache = entityManagerFactory.getCache();
+        eviction.accept(cache);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        eviction.accept(cache);
+                    }
+                }
+            );
+        }
+    }
+}
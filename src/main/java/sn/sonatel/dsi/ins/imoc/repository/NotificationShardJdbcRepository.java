@@ -0,0 +1,94 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Plain JDBC access used to copy rows, as stored, from one shard to another.
+ * <p>
+ * Rows are read as column maps and inserted with {@code INSERT IGNORE}, so that a copy interrupted midway can be
+ * started again.
+ */
+@Repository
+public class NotificationShardJdbcRepository {
+
+    public static final String NOTIFICATION = "notification";
+
+    public static final String NOTIFICATION_BROADCAST = "notification_broadcast";
+
+    public static final String NOTIFICATION_RECIPIENT = "notification_recipient";
+
+    // Les logins des deux tables, en minuscules comme dans notification_recipient, parcourus par ordre alphabétique
+    private static final String SELECT_USER_LOGINS =
+        "SELECT login FROM (SELECT DISTINCT lower(user_login) AS login FROM notification " +
+        "UNION SELECT DISTINCT user_login FROM notification_recipient) logins WHERE login > ? ORDER BY login LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final NotificationSecondLevelCache secondLevelCache;
+
+    public NotificationShardJdbcRepository(DataSource dataSource, NotificationSecondLevelCache secondLevelCache) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    /**
+     * @return the logins, lower-cased, of the users having notifications or broadcasts, following a login.
+     */
+    public List<String> findUserLogins(String afterLogin, int limit) {
+        return jdbcTemplate.queryForList(SELECT_USER_LOGINS, String.class, afterLogin, limit);
+    }
+
+    public List<Map<String, Object>> findNotificationsByUserLogin(String userLogin) {
+        return jdbcTemplate.queryForList("SELECT * FROM notification WHERE lower(user_login) = ?", userLogin);
+    }
+
+    public List<Map<String, Object>> findRecipientsByUserLogin(String userLogin) {
+        return jdbcTemplate.queryForList("SELECT * FROM notification_recipient WHERE user_login = ?", userLogin);
+    }
+
+    public List<Map<String, Object>> findBroadcastsByIdIn(Collection<Long> ids) {
+        return namedParameterJdbcTemplate.queryForList("SELECT * FROM notification_broadcast WHERE id IN (:ids)", Map.of("ids", ids));
+    }
+
+    /**
+     * Insert rows read by the {@code find} methods of this repository, the rows already present being ignored.
+     *
+     * @param table one of the table constants of this class.
+     */
+    public void insertIgnore(String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql =
+            "INSERT IGNORE INTO " +
+            table +
+            " (" +
+            String.join(", ", columns) +
+            ") VALUES (" +
+            String.join(", ", columns.stream().map(column -> "?").toList()) +
+            ")";
+        jdbcTemplate.batchUpdate(sql, rows.stream().map(row -> columns.stream().map(row::get).toArray()).toList());
+    }
+
+    /**
+     * Delete the notifications and the broadcast recipient rows of a user.
+     */
+    public int deleteByUserLogin(String userLogin) {
+        int deleted = jdbcTemplate.update("DELETE FROM notification WHERE lower(user_login) = ?", userLogin);
+        if (deleted > 0) {
+            secondLevelCache.evictAll();
+        }
+        return deleted + jdbcTemplate.update("DELETE FROM notification_recipient WHERE user_login = ?", userLogin);
+    }
+}
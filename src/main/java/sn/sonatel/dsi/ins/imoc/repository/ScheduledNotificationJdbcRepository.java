@@ -0,0 +1,86 @@
+package sn.sonatel.dsi.ins.imoc.repository;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Plain JDBC access to the {@code scheduled_notification} table, which holds the notifications waiting for their
+ * delivery date. The payload is the JSON of the {@link sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO} to create.
+ */
+@Repository
+public class ScheduledNotificationJdbcRepository {
+
+    private static final String INSERT =
+        "INSERT INTO scheduled_notification (id, user_login, deliver_at, payload, created_by, created_date) " +
+        "VALUES (?, ?, ?, ?, ?, UTC_TIMESTAMP(6))";
+
+    private static final String SELECT_DUE_BEFORE =
+        "SELECT id, user_login, deliver_at FROM scheduled_notification WHERE deliver_at < ? ORDER BY deliver_at LIMIT ?";
+
+    // Les lignes verrouillées par un autre nœud sont sautées : chacune n'est livrée qu'une fois
+    private static final String LOCK_PAYLOADS = "SELECT id, payload FROM scheduled_notification WHERE id IN (:ids) FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public ScheduledNotificationJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * @return the id of the inserted row, taken from the sequence shared with the notifications.
+     */
+    public long insert(String userLogin, Instant deliverAt, String payload, String createdBy) {
+        long id = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR sequence_generator", Long.class);
+        jdbcTemplate.update(INSERT, id, userLogin, utc(deliverAt), payload, createdBy);
+        return id;
+    }
+
+    /**
+     * @return the rows due before the given date, the earliest first.
+     */
+    public List<Due> findDueBefore(Instant date, int limit) {
+        return jdbcTemplate.query(
+            SELECT_DUE_BEFORE,
+            (rs, rowNum) -> new Due(rs.getLong(1), rs.getString(2), NotificationJdbcRepository.getInstant(rs, 3)),
+            utc(date),
+            limit
+        );
+    }
+
+    /**
+     * Lock the given rows, skipping the ones already locked, and read their payloads. Must run in a transaction.
+     *
+     * @return the payloads, by id.
+     */
+    public Map<Long, String> lockPayloads(List<Long> ids) {
+        Map<Long, String> payloads = new HashMap<>();
+        namedParameterJdbcTemplate.query(LOCK_PAYLOADS, Map.of("ids", ids), rs -> {
+            payloads.put(rs.getLong(1), rs.getString(2));
+        });
+        return payloads;
+    }
+
+    public int deleteByIdIn(List<Long> ids) {
+        return namedParameterJdbcTemplate.update("DELETE FROM scheduled_notification WHERE id IN (:ids)", Map.of("ids", ids));
+    }
+
+    // Les dates sont stockées en UTC, voir hibernate.jdbc.time_zone
+    private static Object utc(Instant date) {
+        return date.atOffset(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    /**
+     * A row waiting for its delivery date.
+     */
+    public record Due(long id, String userLogin, Instant deliverAt) {}
+}
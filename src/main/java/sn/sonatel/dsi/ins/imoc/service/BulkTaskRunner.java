@@ -0,0 +1,72 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import sn.sonatel.dsi.ins.imoc.config.TaskPriority;
+
+/**
+ * Runs the maintenance jobs (retention, archive, compression, shard rebalance) on the {@code taskExecutor} with the
+ * {@link TaskPriority#BULK} priority, so that they wait behind the interactive and default tasks.
+ */
+@Component
+public class BulkTaskRunner {
+
+    private final Logger log = LoggerFactory.getLogger(BulkTaskRunner.class);
+
+    private final Executor taskExecutor;
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public BulkTaskRunner(@Qualifier("taskExecutor") Executor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Submit a scheduled job, unless its previous run is still queued or running: the scheduler no longer waits for
+     * the job, and would otherwise start it again.
+     *
+     * @param name the name of the job.
+     */
+    public void submit(String name, Runnable job) {
+        if (!running.add(name)) {
+            log.warn("Tâche {} encore en cours, ce déclenchement est ignoré", name);
+            return;
+        }
+        try {
+            TaskPriority.BULK.run(() ->
+                taskExecutor.execute(() -> {
+                    try {
+                        job.run();
+                    } finally {
+                        running.remove(name);
+                    }
+                })
+            );
+        } catch (RuntimeException e) {
+            running.remove(name);
+            throw e;
+        }
+    }
+
+    /**
+     * Run a job on the executor and wait for its result.
+     */
+    public <T> T call(Supplier<T> job) {
+        try {
+            return TaskPriority.BULK.call(() -> CompletableFuture.supplyAsync(job, taskExecutor)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import static sn.sonatel.dsi.ins.imoc.security.SecurityUtils.getCurrentUserLogin;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.config.Constants;
+import sn.sonatel.dsi.ins.imoc.repository.ScheduledNotificationJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+
+/**
+ * Delivers the notifications created with a future {@code deliverAt}.
+ * <p>
+ * They wait in the {@code scheduled_notification} table, so that the read endpoints do not see them. Every
+ * {@code refresh-interval}, the rows due within the {@code horizon} are loaded into a {@link HashedTimingWheel}; at
+ * their date, they are delivered by batches: each row is locked, deleted and turned into a notification, through
+ * {@link NotificationService#save(NotificationDTO)}, which publishes the usual change event. The rows past due when the
+ * service starts are delivered at the first tick, so no timer is lost on restart.
+ * <p>
+ * Time is cut into buckets, each delivered by a single instance, chosen by rendezvous hashing among the instances
+ * registered in Consul: when an instance leaves, its buckets move to the others at the next refresh. As the
+ * instances may briefly disagree, the rows are locked with {@code SKIP LOCKED} and deleted when delivered, so that
+ * each one is delivered once.
+ */
+@Service
+public class DeferredNotificationService {
+
+    public static final String METRIC_PREFIX = "notification.deferred";
+
+    private final Logger log = LoggerFactory.getLogger(DeferredNotificationService.class);
+
+    private final ScheduledNotificationJdbcRepository scheduledNotificationJdbcRepository;
+
+    private final NotificationService notificationService;
+
+    private final NotificationShardService notificationShardService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties.Deferred properties;
+
+    private final ObjectProvider<DiscoveryClient> discoveryClient;
+
+    private final ObjectProvider<Registration> registration;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final HashedTimingWheel<Pending> wheel;
+
+    private final Map<Long, HashedTimingWheel.Timeout<Pending>> loaded = new ConcurrentHashMap<>();
+
+    private final Counter delivered;
+
+    private volatile Ownership ownership = Ownership.ALL;
+
+    private ScheduledExecutorService ticker;
+
+    public DeferredNotificationService(
+        ScheduledNotificationJdbcRepository scheduledNotificationJdbcRepository,
+        NotificationService notificationService,
+        NotificationShardService notificationShardService,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties,
+        ObjectProvider<DiscoveryClient> discoveryClient,
+        ObjectProvider<Registration> registration,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry
+    ) {
+        this.scheduledNotificationJdbcRepository = scheduledNotificationJdbcRepository;
+        this.notificationService = notificationService;
+        this.notificationShardService = notificationShardService;
+        this.objectMapper = objectMapper;
+        this.properties = applicationProperties.getDeferred();
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.wheel = new HashedTimingWheel<>(properties.getTick().toMillis(), properties.getWheelSize(), System.currentTimeMillis());
+        this.delivered = Counter.builder(METRIC_PREFIX + ".delivered").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".pending", loaded, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long tick = properties.getTick().toMillis();
+        ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("notification-deferred-"));
+        ticker.scheduleAtFixedRate(this::tick, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdown();
+        }
+    }
+
+    /**
+     * Store a notification until its {@code deliverAt}.
+     *
+     * @param notificationDTO the notification to deliver later.
+     * @return the notification, without id until it is delivered.
+     */
+    @Transactional
+    public NotificationDTO schedule(NotificationDTO notificationDTO) {
+        log.debug("Request to schedule Notification : {}", notificationDTO);
+        String userLogin = notificationDTO.getUserLogin();
+        Instant deliverAt = notificationDTO.getDeliverAt();
+        String payload = write(notificationDTO);
+        long id = notificationShardService.onUserShard(userLogin, () ->
+            scheduledNotificationJdbcRepository.insert(userLogin, deliverAt, payload, getCurrentUserLogin().orElse(Constants.SYSTEM))
+        );
+        Pending pending = new Pending(id, notificationShardService.shardFor(userLogin), deliverAt);
+        if (properties.isEnabled() && deliverAt.isBefore(Instant.now().plus(properties.getHorizon())) && owns(pending)) {
+            // Ajoutée à la roue une fois la ligne validée, sinon la livraison ne la trouverait pas
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        load(pending);
+                    }
+                }
+            );
+        }
+        return notificationDTO;
+    }
+
+    @Scheduled(fixedDelayString = "${application.deferred.refresh-interval:PT30S}")
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        ownership = currentOwnership();
+        Instant horizon = Instant.now().plus(properties.getHorizon());
+        notificationShardService.forEachShard(shard -> {
+            List<ScheduledNotificationJdbcRepository.Due> dueRows = scheduledNotificationJdbcRepository.findDueBefore(
+                horizon,
+                properties.getMaxLoaded()
+            );
+            for (ScheduledNotificationJdbcRepository.Due due : dueRows) {
+                Pending pending = new Pending(due.id(), shard, due.deliverAt());
+                if (loaded.size() < properties.getMaxLoaded() && owns(pending)) {
+                    load(pending);
+                }
+            }
+        });
+        // Compartiments passés à une autre instance
+        loaded
+            .values()
+            .removeIf(timeout -> {
+                if (owns(timeout.getPayload())) {
+                    return false;
+                }
+                timeout.cancel();
+                return true;
+            });
+    }
+
+    private void load(Pending pending) {
+        loaded.computeIfAbsent(pending.id, id -> wheel.schedule(pending, pending.deliverAt.toEpochMilli()));
+    }
+
+    private void tick() {
+        try {
+            List<Pending> due = wheel.advance(System.currentTimeMillis());
+            if (due.isEmpty()) {
+                return;
+            }
+            Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+            for (Pending pending : due) {
+                loaded.remove(pending.id);
+                idsByShard.computeIfAbsent(pending.shard, shard -> new ArrayList<>()).add(pending.id);
+            }
+            idsByShard.forEach((shard, ids) -> {
+                for (int from = 0; from < ids.size(); from += properties.getBatchSize()) {
+                    deliver(shard, ids.subList(from, Math.min(from + properties.getBatchSize(), ids.size())));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Les lignes non livrées restent en table : elles sont rechargées au prochain rafraîchissement
+            log.error("Deferred notifications delivery failed", e);
+        }
+    }
+
+    private void deliver(int shard, List<Long> ids) {
+        int count = notificationShardService.onShard(shard, () ->
+            transactionTemplate.execute(status -> {
+                Map<Long, String> payloads = scheduledNotificationJdbcRepository.lockPayloads(ids);
+                if (payloads.isEmpty()) {
+                    return 0;
+                }
+                scheduledNotificationJdbcRepository.deleteByIdIn(new ArrayList<>(payloads.keySet()));
+                payloads.forEach((id, payload) -> {
+                    NotificationDTO notificationDTO = read(id, payload);
+                    if (notificationDTO != null) {
+                        notificationDTO.setDeliverAt(null);
+                        notificationService.save(notificationDTO);
+                    }
+                });
+                return payloads.size();
+            })
+        );
+        delivered.increment(count);
+        log.debug("{} deferred notifications delivered on shard {}", count, shard);
+    }
+
+    private String write(NotificationDTO notificationDTO) {
+        try {
+            return objectMapper.writeValueAsString(notificationDTO);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Une charge utile illisible est abandonnée : la rejouer bloquerait tout son lot
+    private NotificationDTO read(long id, String payload) {
+        try {
+            return objectMapper.readValue(payload, NotificationDTO.class);
+        } catch (JsonProcessingException e) {
+            log.error("Deferred notification {} dropped, unreadable payload: {}", id, payload, e);
+            return null;
+        }
+    }
+
+    private boolean owns(Pending pending) {
+        return ownership.owns(pending.deliverAt.toEpochMilli() / properties.getBucket().toMillis());
+    }
+
+    private Ownership currentOwnership() {
+        Registration self = registration.getIfAvailable();
+        DiscoveryClient client = discoveryClient.getIfAvailable();
+        if (self == null || self.getInstanceId() == null || client == null) {
+            return Ownership.ALL;
+        }
+        try {
+            List<String> instances = new ArrayList<>(
+                client.getInstances(self.getServiceId()).stream().map(ServiceInstance::getInstanceId).filter(Objects::nonNull).toList()
+            );
+            // Pas encore visible dans Consul : l'instance se compte elle-même
+            if (!instances.contains(self.getInstanceId())) {
+                instances.add(self.getInstanceId());
+            }
+            return new Ownership(self.getInstanceId(), instances);
+        } catch (RuntimeException e) {
+            log.warn("Unable to list the instances, keeping the previous bucket ownership: {}", e.toString());
+            return ownership;
+        }
+    }
+
+    private record Pending(long id, int shard, Instant deliverAt) {}
+
+    /**
+     * The instances sharing the buckets: each bucket goes to the instance with the highest score for it.
+     */
+    private record Ownership(String self, List<String> instances) {
+        static final Ownership ALL = new Ownership(null, List.of());
+
+        boolean owns(long bucket) {
+            if (self == null) {
+                return true;
+            }
+            String owner = null;
+            long best = Long.MIN_VALUE;
+            for (String instance : instances) {
+                long score = mix(((long) instance.hashCode() << 32) ^ bucket);
+                if (owner == null || score > best || (score == best && instance.compareTo(owner) < 0)) {
+                    owner = instance;
+                    best = score;
+                }
+            }
+            return self.equals(owner);
+        }
+
+        // Finaliseur de SplitMix64 : des scores bien répartis même pour des compartiments consécutifs
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return value ^ (value >>> 31);
+        }
+    }
+}
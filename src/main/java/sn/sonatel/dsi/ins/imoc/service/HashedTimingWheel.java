@@ -0,0 +1,123 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A hashed timing wheel: timers are hashed by their deadline into a ring of slots, each covering one tick, and a timer
+ * due more than one turn ahead waits for its remaining turns in its slot. Adding a timer and expiring those of a tick
+ * cost the same whatever the number of pending timers.
+ * <p>
+ * The wheel does not run by itself: {@link #advance(long)} is called at each tick and returns the expired timers.
+ * Timers are only fired at tick boundaries, at most one tick late.
+ *
+ * @param <T> the type of the timer payload.
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+
+    private final List<Timeout<T>>[] slots;
+
+    private final int mask;
+
+    private final long startMillis;
+
+    // Prochain tick à traiter, compté depuis startMillis
+    private long nextTick;
+
+    private int size;
+
+    /**
+     * @param tickMillis the duration of a tick.
+     * @param wheelSize the number of slots, rounded up to a power of two.
+     * @param startMillis the time of the first tick.
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        int slotCount = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickMillis = tickMillis;
+        this.slots = new List[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new LinkedList<>();
+        }
+        this.mask = slotCount - 1;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Add a timer. A deadline already past fires at the next tick.
+     *
+     * @return the handle of the timer, to cancel it.
+     */
+    public synchronized Timeout<T> schedule(T payload, long deadlineMillis) {
+        long tick = Math.max(-Math.floorDiv(startMillis - deadlineMillis, tickMillis), nextTick);
+        Timeout<T> timeout = new Timeout<>(payload, (tick - nextTick) / slots.length);
+        slots[(int) (tick & mask)].add(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Process the ticks up to the given time.
+     *
+     * @return the payloads of the expired timers, the cancelled ones left out.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long lastTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        for (; nextTick <= lastTick; nextTick++) {
+            Iterator<Timeout<T>> timeouts = slots[(int) (nextTick & mask)].iterator();
+            while (timeouts.hasNext()) {
+                Timeout<T> timeout = timeouts.next();
+                if (timeout.cancelled || timeout.remainingRounds == 0) {
+                    timeouts.remove();
+                    size--;
+                    if (!timeout.cancelled) {
+                        expired.add(timeout.payload);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return the number of pending timers, the cancelled ones not yet swept included.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * The handle of a timer.
+     */
+    public static final class Timeout<T> {
+
+        private final T payload;
+
+        private long remainingRounds;
+
+        private volatile boolean cancelled;
+
+        private Timeout(T payload, long remainingRounds) {
+            this.payload = payload;
+            this.remainingRounds = remainingRounds;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        /**
+         * Cancel the timer: it is dropped when its slot is next processed.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
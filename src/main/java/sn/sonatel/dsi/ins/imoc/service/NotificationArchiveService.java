@@ -0,0 +1,200 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.domain.TemplateParamsConverter;
+import sn.sonatel.dsi.ins.imoc.repository.MessageCodec;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationArchiveRepository;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationArchiveRepository.ArchivedNotification;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Moves the old read notifications from the table to the archive segments, and reads them back.
+ * <p>
+ * The segments are written before the rows are deleted: if the job stops in between, the rows are
+ * archived again by the next run, and the duplicates are removed when reading. Each shard is archived in turn,
+ * its ids being unique across shards.
+ */
+@Service
+public class NotificationArchiveService {
+
+    private static final TemplateParamsConverter TEMPLATE_PARAMS_CONVERTER = new TemplateParamsConverter();
+
+    private final Logger log = LoggerFactory.getLogger(NotificationArchiveService.class);
+
+    private final NotificationJdbcRepository notificationJdbcRepository;
+
+    private final NotificationArchiveRepository notificationArchiveRepository;
+
+    private final MessageCodec messageCodec;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final NotificationShardService notificationShardService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BulkTaskRunner bulkTaskRunner;
+
+    public NotificationArchiveService(
+        NotificationJdbcRepository notificationJdbcRepository,
+        NotificationArchiveRepository notificationArchiveRepository,
+        MessageCodec messageCodec,
+        ApplicationEventPublisher eventPublisher,
+        ApplicationProperties applicationProperties,
+        NotificationShardService notificationShardService,
+        PlatformTransactionManager transactionManager,
+        BulkTaskRunner bulkTaskRunner
+    ) {
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.notificationArchiveRepository = notificationArchiveRepository;
+        this.messageCodec = messageCodec;
+        this.eventPublisher = eventPublisher;
+        this.applicationProperties = applicationProperties;
+        this.notificationShardService = notificationShardService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkTaskRunner = bulkTaskRunner;
+        validate(applicationProperties);
+    }
+
+    // La purge ne doit pas supprimer les notifications lues avant qu'elles aient pu être archivées
+    private static void validate(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Archive archive = applicationProperties.getArchive();
+        ApplicationProperties.Retention retention = applicationProperties.getRetention();
+        if (
+            !"-".equals(archive.getCron()) &&
+            !"-".equals(retention.getCron()) &&
+            archive.getAfter().compareTo(retention.getReadAfter()) >= 0
+        ) {
+            throw new IllegalStateException(
+                "application.archive.after (" +
+                archive.getAfter() +
+                ") must be shorter than application.retention.read-after (" +
+                retention.getReadAfter() +
+                "), or the read notifications are purged before being archived"
+            );
+        }
+    }
+
+    @Scheduled(cron = "${application.archive.cron:-}")
+    public void scheduleArchive() {
+        bulkTaskRunner.submit("archive", this::archiveOldNotifications);
+    }
+
+    public void archiveOldNotifications() {
+        ApplicationProperties.Archive archive = applicationProperties.getArchive();
+        Instant createdBefore = Instant.now().minus(archive.getAfter());
+        long[] archived = { 0 };
+        notificationShardService.forEachShard(shard -> archived[0] += archiveOldNotifications(archive, createdBefore));
+        log.info("Archivage des notifications : {} notifications archivées", archived[0]);
+    }
+
+    private long archiveOldNotifications(ApplicationProperties.Archive archive, Instant createdBefore) {
+        Long maxId = notificationJdbcRepository.findMaxIdCreatedBefore(createdBefore);
+        if (maxId == null) {
+            return 0;
+        }
+        Map<String, Map<String, List<ArchivedNotification>>> byMonth = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        long afterId = 0;
+        long archived = 0;
+        while (true) {
+            int before = ids.size();
+            notificationJdbcRepository.findArchivable(afterId, maxId, archive.getBatchSize(), rs -> {
+                ArchivedNotification notification = new ArchivedNotification(
+                    rs.getLong(NotificationJdbcRepository.COLUMN_ID),
+                    messageCodec.decode(rs.getString(NotificationJdbcRepository.COLUMN_MESSAGE)),
+                    rs.getObject(NotificationJdbcRepository.COLUMN_RESERVATION_ID, Long.class),
+                    rs.getString(NotificationJdbcRepository.COLUMN_USER_LOGIN),
+                    rs.getBoolean(NotificationJdbcRepository.COLUMN_DELETED),
+                    rs.getBoolean(NotificationJdbcRepository.COLUMN_READ),
+                    rs.getString(NotificationJdbcRepository.COLUMN_KIND),
+                    rs.getInt(NotificationJdbcRepository.COLUMN_OCCURRENCES),
+                    rs.getString(NotificationJdbcRepository.COLUMN_TEMPLATE_KEY),
+                    rs.getString(NotificationJdbcRepository.COLUMN_TEMPLATE_PARAMS),
+                    NotificationJdbcRepository.getInstant(rs, NotificationJdbcRepository.COLUMN_CREATED_DATE)
+                );
+                byMonth
+                    .computeIfAbsent(timeRange(notification.createdDate()), month -> new LinkedHashMap<>())
+                    .computeIfAbsent(notification.userLogin().toLowerCase(), login -> new ArrayList<>())
+                    .add(notification);
+                ids.add(notification.id());
+            });
+            if (ids.size() == before) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+            if (ids.size() >= archive.getSegmentSize()) {
+                archived += flush(byMonth, ids);
+            }
+        }
+        archived += flush(byMonth, ids);
+        return archived;
+    }
+
+    private int flush(Map<String, Map<String, List<ArchivedNotification>>> byMonth, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        byMonth.forEach(notificationArchiveRepository::writeSegment);
+        int chunkSize = applicationProperties.getBulk().getChunkSize();
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            deleted += transactionTemplate.execute(status -> notificationJdbcRepository.deleteReadByIdIn(chunk));
+        }
+        byMonth.clear();
+        ids.clear();
+        eventPublisher.publishEvent(NotificationsChangedEvent.forAllUsers());
+        return deleted;
+    }
+
+    private static String timeRange(Instant createdDate) {
+        return createdDate == null ? "undated" : YearMonth.from(createdDate.atOffset(ZoneOffset.UTC)).toString();
+    }
+
+    /**
+     * Read the archived notifications of a user.
+     *
+     * @param userLogin the login of the user.
+     * @return the notifications, by id.
+     */
+    public Map<Long, NotificationDTO> findArchived(String userLogin) {
+        Map<Long, NotificationDTO> notifications = new HashMap<>();
+        for (ArchivedNotification archived : notificationArchiveRepository.findByUserLogin(userLogin)) {
+            NotificationDTO notificationDTO = new NotificationDTO();
+            notificationDTO.setId(archived.id());
+            notificationDTO.setMessage(archived.message());
+            notificationDTO.setReservationId(archived.reservationId());
+            notificationDTO.setUserLogin(archived.userLogin());
+            notificationDTO.setDeleted(archived.deleted());
+            notificationDTO.setRead(archived.read());
+            notificationDTO.setKind(archived.kind());
+            notificationDTO.setOccurrences(archived.occurrences());
+            notificationDTO.setBroadcast(false);
+            notificationDTO.setTemplateKey(archived.templateKey());
+            notificationDTO.setTemplateParams(TEMPLATE_PARAMS_CONVERTER.convertToEntityAttribute(archived.templateParams()));
+            notificationDTO.setCreatedDate(archived.createdDate());
+            notifications.put(archived.id(), notificationDTO);
+        }
+        return notifications;
+    }
+}
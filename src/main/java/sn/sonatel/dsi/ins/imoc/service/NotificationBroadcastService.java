@@ -0,0 +1,204 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.domain.NotificationBroadcast;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationBroadcastRepository;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationRecipientJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationShardJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationBroadcastDTO;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+import sn.sonatel.dsi.ins.imoc.service.mapper.NotificationBroadcastMapper;
+
+/**
+ * Service Implementation for managing {@link sn.sonatel.dsi.ins.imoc.domain.NotificationBroadcast}.
+ */
+@Service
+@Transactional
+public class NotificationBroadcastService {
+
+    private final Logger log = LoggerFactory.getLogger(NotificationBroadcastService.class);
+
+    private final NotificationBroadcastRepository notificationBroadcastRepository;
+
+    private final NotificationRecipientJdbcRepository notificationRecipientJdbcRepository;
+
+    private final NotificationJdbcRepository notificationJdbcRepository;
+
+    private final NotificationBroadcastMapper notificationBroadcastMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final NotificationShardService notificationShardService;
+
+    private final NotificationShardJdbcRepository notificationShardJdbcRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public NotificationBroadcastService(
+        NotificationBroadcastRepository notificationBroadcastRepository,
+        NotificationRecipientJdbcRepository notificationRecipientJdbcRepository,
+        NotificationJdbcRepository notificationJdbcRepository,
+        NotificationBroadcastMapper notificationBroadcastMapper,
+        ApplicationEventPublisher eventPublisher,
+        ApplicationProperties applicationProperties,
+        NotificationShardService notificationShardService,
+        NotificationShardJdbcRepository notificationShardJdbcRepository,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.notificationBroadcastRepository = notificationBroadcastRepository;
+        this.notificationRecipientJdbcRepository = notificationRecipientJdbcRepository;
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.notificationBroadcastMapper = notificationBroadcastMapper;
+        this.eventPublisher = eventPublisher;
+        this.applicationProperties = applicationProperties;
+        this.notificationShardService = notificationShardService;
+        this.notificationShardJdbcRepository = notificationShardJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Store a broadcast once, then fan it out to its recipients.
+     * <p>
+     * The fan-out is not transactional: each chunk of recipients is committed on its own, so that
+     * a large audience does not hold locks on the recipient table for the whole fan-out. The
+     * recipients of a chunk see the broadcast as soon as the chunk is committed.
+     * <p>
+     * With sharding, the broadcast is stored on the first shard then copied to the others, and each recipient row
+     * is stored on the shard of its user.
+     *
+     * @param notificationBroadcastDTO the broadcast, with either its recipients logins or its audience.
+     * @return the persisted broadcast, with its number of recipients.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public NotificationBroadcastDTO save(NotificationBroadcastDTO notificationBroadcastDTO) {
+        log.debug("Request to save NotificationBroadcast : {}", notificationBroadcastDTO);
+        NotificationBroadcast notificationBroadcast = notificationBroadcastMapper.toEntity(notificationBroadcastDTO);
+        notificationBroadcast.setCreatedDate(Instant.now());
+        NotificationBroadcast toSave = notificationBroadcast;
+        notificationBroadcast = notificationShardService.onShard(0, () -> notificationBroadcastRepository.save(toSave));
+        long broadcastId = notificationBroadcast.getId();
+        copyToOtherShards(broadcastId);
+
+        if (notificationBroadcastDTO.getUserLogins() != null && !notificationBroadcastDTO.getUserLogins().isEmpty()) {
+            fanOutToUserLogins(broadcastId, notificationBroadcastDTO.getUserLogins());
+        } else if (notificationBroadcastDTO.getAudience() != null) {
+            fanOutToAudience(broadcastId, notificationBroadcastDTO);
+        }
+        eventPublisher.publishEvent(NotificationsChangedEvent.forAllUsers());
+
+        NotificationBroadcastDTO result = notificationBroadcastMapper.toDto(notificationBroadcast);
+        result.setRecipients(countRecipients(broadcastId));
+        log.info("Diffusion {} envoyée à {} destinataires", broadcastId, result.getRecipients());
+        return result;
+    }
+
+    // La diffusion est lue par jointure avec ses destinataires : chaque shard en garde une copie
+    private void copyToOtherShards(long broadcastId) {
+        if (!notificationShardService.isSharded()) {
+            return;
+        }
+        List<Map<String, Object>> rows = notificationShardService.onShard(0, () ->
+            notificationShardJdbcRepository.findBroadcastsByIdIn(List.of(broadcastId))
+        );
+        for (int shard = 1; shard < notificationShardService.getShardCount(); shard++) {
+            notificationShardService.onShard(shard, () ->
+                transactionTemplate.executeWithoutResult(status ->
+                    notificationShardJdbcRepository.insertIgnore(NotificationShardJdbcRepository.NOTIFICATION_BROADCAST, rows)
+                )
+            );
+        }
+    }
+
+    private long countRecipients(long broadcastId) {
+        return notificationShardService
+            .scatter(true, shard -> notificationRecipientJdbcRepository.countByBroadcastId(broadcastId))
+            .stream()
+            .mapToLong(Long::longValue)
+            .sum();
+    }
+
+    private void fanOutToUserLogins(long broadcastId, List<String> userLogins) {
+        List<String> distinctLogins = userLogins.stream().map(String::toLowerCase).distinct().toList();
+        int batchSize = applicationProperties.getBroadcast().getBatchSize();
+        notificationShardService
+            .groupByShard(distinctLogins)
+            .forEach((shard, logins) ->
+                notificationShardService.onShard(shard, () -> {
+                    for (int from = 0; from < logins.size(); from += batchSize) {
+                        List<String> chunk = logins.subList(from, Math.min(from + batchSize, logins.size()));
+                        transactionTemplate.executeWithoutResult(status ->
+                            notificationRecipientJdbcRepository.insertRecipients(broadcastId, chunk)
+                        );
+                    }
+                })
+            );
+    }
+
+    // Parcours de la table notification de chaque shard par plages d'identifiants : un INSERT ... SELECT par plage
+    private void fanOutToAudience(long broadcastId, NotificationBroadcastDTO notificationBroadcastDTO) {
+        Long reservationId = switch (notificationBroadcastDTO.getAudience()) {
+            case ALL_USERS -> null;
+            case RESERVATION -> notificationBroadcastDTO.getReservationId();
+        };
+        long chunkSize = applicationProperties.getBroadcast().getAudienceChunkSize();
+        notificationShardService.forEachShard(shard -> {
+            long[] range = notificationJdbcRepository.findIdRange();
+            Long from = range == null ? null : range[0];
+            while (from != null && from <= range[1]) {
+                long start = from;
+                transactionTemplate.executeWithoutResult(status ->
+                    notificationRecipientJdbcRepository.insertAudienceRange(broadcastId, start, start + chunkSize, reservationId)
+                );
+                // Les notifications déplacées d'un shard à l'autre laissent des trous dans les identifiants
+                from = notificationJdbcRepository.findMinIdFrom(start + chunkSize);
+            }
+        });
+    }
+
+    /**
+     * Get one broadcast by id.
+     *
+     * @param id the id of the entity.
+     * @return the entity, with its number of recipients.
+     */
+    @Transactional(readOnly = true)
+    public Optional<NotificationBroadcastDTO> findOne(Long id) {
+        log.debug("Request to get NotificationBroadcast : {}", id);
+        return notificationShardService
+            .onShard(0, () -> notificationBroadcastRepository.findById(id))
+            .map(notificationBroadcastMapper::toDto)
+            .map(dto -> {
+                dto.setRecipients(countRecipients(id));
+                return dto;
+            });
+    }
+
+    /**
+     * Delete the broadcast by id, from every shard, its recipients rows being deleted by cascade.
+     *
+     * @param id the id of the entity.
+     */
+    public void delete(Long id) {
+        log.debug("Request to delete NotificationBroadcast : {}", id);
+        notificationShardService.scatter(false, shard -> {
+            notificationBroadcastRepository.deleteById(id);
+            return null;
+        });
+        eventPublisher.publishEvent(NotificationsChangedEvent.forAllUsers());
+    }
+}
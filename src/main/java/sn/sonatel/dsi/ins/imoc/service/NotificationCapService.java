@@ -0,0 +1,121 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Keeps the number of notifications of each user under {@code application.cap.max-per-user}.
+ * <p>
+ * Only the users whose notifications changed are checked, by a background pass: a change marks
+ * the user as pending, and the next pass counts its notifications and evicts the overflow in
+ * small batches. The table is never swept as a whole.
+ * <p>
+ * The metrics are aggregated over the users, never tagged by login: {@code user.size} is the distribution of
+ * the counted sizes, before eviction, and {@code users.over} counts the users found over the cap.
+ */
+@Service
+public class NotificationCapService {
+
+    public static final String METRIC_PREFIX = "notification.cap";
+
+    private static final int MAX_PENDING_USERS = 100_000;
+
+    private final Logger log = LoggerFactory.getLogger(NotificationCapService.class);
+
+    private final NotificationJdbcRepository notificationJdbcRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ApplicationProperties.Cap properties;
+
+    private final NotificationShardService notificationShardService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Set<String> pendingUsers = ConcurrentHashMap.newKeySet();
+
+    private final Counter evicted;
+
+    private final Counter usersOver;
+
+    private final DistributionSummary userSize;
+
+    public NotificationCapService(
+        NotificationJdbcRepository notificationJdbcRepository,
+        ApplicationEventPublisher eventPublisher,
+        ApplicationProperties applicationProperties,
+        NotificationShardService notificationShardService,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry
+    ) {
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.properties = applicationProperties.getCap();
+        this.notificationShardService = notificationShardService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.evicted = Counter.builder(METRIC_PREFIX + ".evicted").register(meterRegistry);
+        this.usersOver = Counter.builder(METRIC_PREFIX + ".users.over").register(meterRegistry);
+        // Le login n'est jamais un tag : une série par utilisateur ferait exploser la cardinalité
+        this.userSize = DistributionSummary.builder(METRIC_PREFIX + ".user.size").baseUnit("notifications").register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsChanged(NotificationsChangedEvent event) {
+        // Au-delà, l'utilisateur sera repris lors de sa prochaine modification ; une éviction ne le remet pas en attente
+        if (properties.isEnabled() && !event.isForAllUsers() && !event.overflowEvicted() && pendingUsers.size() < MAX_PENDING_USERS) {
+            pendingUsers.add(event.userLogin().toLowerCase());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.cap.delay:PT10S}")
+    public void evictOverflow() {
+        if (!properties.isEnabled() || pendingUsers.isEmpty()) {
+            return;
+        }
+        List<String> users = new ArrayList<>(pendingUsers);
+        pendingUsers.removeAll(users);
+        for (String user : users) {
+            notificationShardService.onUserShard(user, () -> evictOverflow(user));
+        }
+    }
+
+    private void evictOverflow(String user) {
+        long count = notificationJdbcRepository.countByUserLogin(user);
+        long overflow = count - properties.getMaxPerUser();
+        userSize.record(count);
+        if (overflow > 0) {
+            usersOver.increment();
+        }
+        long total = 0;
+        while (overflow > 0) {
+            int limit = (int) Math.min(overflow, properties.getBatchSize());
+            int deleted = transactionTemplate.execute(status -> notificationJdbcRepository.deleteOldestByUserLogin(user, limit));
+            if (deleted == 0) {
+                break;
+            }
+            overflow -= deleted;
+            total += deleted;
+        }
+        if (total > 0) {
+            evicted.increment(total);
+            log.debug("{} notifications évincées pour l'utilisateur {}", total, user);
+            eventPublisher.publishEvent(NotificationsChangedEvent.overflowEvictedFor(user));
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import sn.sonatel.dsi.ins.imoc.client.UserServiceClient;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.config.Constants;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationEmailJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.security.AuthoritiesConstants;
+import sn.sonatel.dsi.ins.imoc.security.jwt.TokenProvider;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * E-mail channel of the notifications.
+ * <p>
+ * A notification is sent to the address of its recipient's account: a client only asks for the e-mail, it never
+ * gives the address. The outbox keeps the login; the addresses are read from {@code user-service} when the e-mails
+ * are sent, outside any transaction, with a token of this service.
+ * <p>
+ * The e-mail of a notification is written to the {@code notification_email} outbox, in the transaction of the
+ * notification. Every {@code poll-interval}, the due e-mails are taken from the outbox by batches, locked with
+ * {@code SKIP LOCKED} and leased, then sent over at most {@code concurrency} SMTP sessions at once, each session
+ * sending up to {@code messages-per-session} e-mails over a single connection. Sent e-mails are deleted; the failed
+ * ones are retried with an exponential backoff, then kept as dead letters after {@code max-attempts}. The HTML body is
+ * rendered when the e-mail is queued, by {@link NotificationTemplateRenderer}, and sent along the plain text one.
+ * <p>
+ * Metrics: {@code notification.email.sent}, {@code notification.email.failed}, {@code notification.email.dead},
+ * {@code notification.email.session}, {@code notification.email.pending} and {@code notification.email.lag}, the age
+ * of the oldest due e-mail.
+ */
+@Service
+public class NotificationEmailService {
+
+    public static final String METRIC_PREFIX = "notification.email";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final Logger log = LoggerFactory.getLogger(NotificationEmailService.class);
+
+    private final NotificationEmailJdbcRepository notificationEmailJdbcRepository;
+
+    private final ObjectProvider<JavaMailSender> mailSender;
+
+    private final UserServiceClient userServiceClient;
+
+    private final TokenProvider tokenProvider;
+
+    private final JHipsterProperties jHipsterProperties;
+
+    private final MessageSource messageSource;
+
+    private final NotificationTemplateRenderer notificationTemplateRenderer;
+
+    private final NotificationShardService notificationShardService;
+
+    private final ApplicationProperties.Email properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor;
+
+    private final Counter sent;
+
+    private final Counter failed;
+
+    private final Counter dead;
+
+    private final Timer session;
+
+    private volatile long pending;
+
+    private volatile double lagSeconds;
+
+    public NotificationEmailService(
+        NotificationEmailJdbcRepository notificationEmailJdbcRepository,
+        ObjectProvider<JavaMailSender> mailSender,
+        UserServiceClient userServiceClient,
+        TokenProvider tokenProvider,
+        JHipsterProperties jHipsterProperties,
+        MessageSource messageSource,
+        NotificationTemplateRenderer notificationTemplateRenderer,
+        NotificationShardService notificationShardService,
+        ApplicationProperties applicationProperties,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry
+    ) {
+        this.notificationEmailJdbcRepository = notificationEmailJdbcRepository;
+        this.mailSender = mailSender;
+        this.userServiceClient = userServiceClient;
+        this.tokenProvider = tokenProvider;
+        this.jHipsterProperties = jHipsterProperties;
+        this.messageSource = messageSource;
+        this.notificationTemplateRenderer = notificationTemplateRenderer;
+        this.notificationShardService = notificationShardService;
+        this.properties = applicationProperties.getEmail();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = properties.isEnabled()
+            ? Executors.newFixedThreadPool(properties.getConcurrency(), new CustomizableThreadFactory("notification-email-"))
+            : null;
+        this.sent = Counter.builder(METRIC_PREFIX + ".sent").register(meterRegistry);
+        this.failed = Counter.builder(METRIC_PREFIX + ".failed").register(meterRegistry);
+        this.dead = Counter.builder(METRIC_PREFIX + ".dead").register(meterRegistry);
+        this.session = Timer.builder(METRIC_PREFIX + ".session").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".pending", this, service -> service.pending).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".lag", this, service -> service.lagSeconds).baseUnit("seconds").register(meterRegistry);
+    }
+
+    /**
+     * Add the e-mail of a notification to the outbox, in the current transaction.
+     *
+     * @param notificationDTO the saved notification, its message rendered.
+     * @param sendEmail whether the notification was created with {@code sendEmail}; nothing is sent otherwise.
+     */
+    public void enqueue(NotificationDTO notificationDTO, boolean sendEmail) {
+        if (!sendEmail || !properties.isEnabled() || notificationDTO.getUserLogin() == null) {
+            return;
+        }
+        Locale locale = LocaleContextHolder.getLocale();
+        String subject = messageSource.getMessage("email.notification.title", null, locale);
+        notificationEmailJdbcRepository.insert(
+            notificationDTO.getId(),
+            notificationDTO.getUserLogin(),
+            subject,
+            notificationDTO.getMessage(),
+            notificationTemplateRenderer.renderHtml(notificationDTO, locale)
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${application.email.poll-interval:PT5S}")
+    public void dispatch() {
+        JavaMailSender sender = mailSender.getIfAvailable();
+        if (!properties.isEnabled() || sender == null) {
+            return;
+        }
+        long[] total = { 0 };
+        double[] lag = { 0 };
+        notificationShardService.forEachShard(shard -> {
+            Instant now = Instant.now();
+            Instant oldest = notificationEmailJdbcRepository.findOldestDue(now);
+            if (oldest != null) {
+                lag[0] = Math.max(lag[0], Duration.between(oldest, now).toMillis() / 1000.0);
+            }
+            List<NotificationEmailJdbcRepository.Email> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) {
+                    send(sender, batch);
+                }
+            } while (batch.size() == properties.getBatchSize());
+            total[0] += notificationEmailJdbcRepository.countPending();
+        });
+        pending = total[0];
+        lagSeconds = lag[0];
+    }
+
+    private List<NotificationEmailJdbcRepository.Email> claim() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<NotificationEmailJdbcRepository.Email> batch = notificationEmailJdbcRepository.lockDue(now, properties.getBatchSize());
+            if (!batch.isEmpty()) {
+                notificationEmailJdbcRepository.lease(
+                    batch.stream().map(NotificationEmailJdbcRepository.Email::id).toList(),
+                    now.plus(properties.getLease())
+                );
+            }
+            return batch;
+        });
+    }
+
+    // Une session SMTP par groupe de messages, au plus "concurrency" sessions à la fois
+    private void send(JavaMailSender sender, List<NotificationEmailJdbcRepository.Email> batch) {
+        Map<Long, Exception> failures = new HashMap<>();
+        List<NotificationEmailJdbcRepository.Email> addressed = withAddresses(batch, failures);
+        List<CompletableFuture<Map<Long, Exception>>> sessions = new ArrayList<>();
+        for (int from = 0; from < addressed.size(); from += properties.getMessagesPerSession()) {
+            List<NotificationEmailJdbcRepository.Email> emails = addressed.subList(
+                from,
+                Math.min(from + properties.getMessagesPerSession(), addressed.size())
+            );
+            sessions.add(CompletableFuture.supplyAsync(() -> session.record(() -> sendSession(sender, emails)), executor));
+        }
+        sessions.forEach(future -> failures.putAll(future.join()));
+
+        List<Long> sentIds = batch.stream().map(NotificationEmailJdbcRepository.Email::id).filter(id -> !failures.containsKey(id)).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                notificationEmailJdbcRepository.deleteByIdIn(sentIds);
+            }
+            for (NotificationEmailJdbcRepository.Email email : batch) {
+                Exception failure = failures.get(email.id());
+                if (failure != null) {
+                    markFailed(email, failure);
+                }
+            }
+        });
+        sent.increment(sentIds.size());
+    }
+
+    // Une lecture par destinataire du lot ; un compte illisible fait réessayer ses e-mails, sans les perdre
+    private List<NotificationEmailJdbcRepository.Email> withAddresses(
+        List<NotificationEmailJdbcRepository.Email> batch,
+        Map<Long, Exception> failures
+    ) {
+        Map<String, Address> addresses = new HashMap<>();
+        String authorization = null;
+        List<NotificationEmailJdbcRepository.Email> addressed = new ArrayList<>(batch.size());
+        for (NotificationEmailJdbcRepository.Email email : batch) {
+            if (email.emailTo() != null) {
+                addressed.add(email);
+                continue;
+            }
+            if (authorization == null) {
+                authorization = BEARER_PREFIX + serviceToken();
+            }
+            String serviceAuthorization = authorization;
+            Address address = addresses.computeIfAbsent(email.userLogin().toLowerCase(), login ->
+                readAddress(serviceAuthorization, email.userLogin())
+            );
+            if (address.failure() != null) {
+                failures.put(email.id(), address.failure());
+            } else {
+                addressed.add(email.withEmailTo(address.value()));
+            }
+        }
+        return addressed;
+    }
+
+    private Address readAddress(String authorization, String userLogin) {
+        try {
+            UserServiceClient.User user = userServiceClient.getUser(authorization, userLogin);
+            if (user == null || !StringUtils.hasText(user.email())) {
+                return new Address(null, new IllegalStateException("The account of " + userLogin + " has no e-mail address"));
+            }
+            return new Address(user.email(), null);
+        } catch (RuntimeException e) {
+            return new Address(null, e);
+        }
+    }
+
+    // Le dispatcher n'a pas d'utilisateur courant : il s'authentifie comme le système, avec la clé partagée des jetons
+    private String serviceToken() {
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN));
+        return tokenProvider.createToken(new UsernamePasswordAuthenticationToken(Constants.SYSTEM, null, authorities), false);
+    }
+
+    private Map<Long, Exception> sendSession(JavaMailSender sender, List<NotificationEmailJdbcRepository.Email> emails) {
+        Map<Long, Exception> failures = new HashMap<>();
+        Map<MimeMessage, Long> ids = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        for (NotificationEmailJdbcRepository.Email email : emails) {
+            try {
+                MimeMessage message = sender.createMimeMessage();
+                // Multipart seulement avec un corps HTML : texte brut et HTML en alternative
+                MimeMessageHelper helper = new MimeMessageHelper(message, email.htmlBody() != null, StandardCharsets.UTF_8.name());
+                helper.setTo(email.emailTo());
+                helper.setFrom(jHipsterProperties.getMail().getFrom());
+                helper.setSubject(email.subject());
+                if (email.htmlBody() == null) {
+                    helper.setText(email.body(), false);
+                } else {
+                    helper.setText(email.body(), email.htmlBody());
+                }
+                ids.put(message, email.id());
+                messages.add(message);
+            } catch (MessagingException e) {
+                failures.put(email.id(), e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        try {
+            // Tous les messages passent par la même connexion SMTP
+            sender.send(messages.toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                ids.values().forEach(id -> failures.put(id, e));
+            }
+            e.getFailedMessages().forEach((message, failure) -> failures.put(ids.get(message), failure));
+        } catch (MailException e) {
+            ids.values().forEach(id -> failures.put(id, e));
+        }
+        return failures;
+    }
+
+    private void markFailed(NotificationEmailJdbcRepository.Email email, Exception failure) {
+        int attempts = email.attempts() + 1;
+        boolean givenUp = attempts >= properties.getMaxAttempts();
+        String error = String.valueOf(failure.getMessage());
+        notificationEmailJdbcRepository.markFailed(
+            email.id(),
+            attempts,
+            Instant.now().plus(backoff(attempts)),
+            error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+            givenUp
+        );
+        failed.increment();
+        if (givenUp) {
+            dead.increment();
+            log.warn("E-mail {} to {} given up after {} attempts: {}", email.id(), email.recipient(), attempts, error);
+        } else {
+            log.debug("E-mail {} to {} failed, attempt {}: {}", email.id(), email.recipient(), attempts, error);
+        }
+    }
+
+    // Délai doublé à chaque échec, plafonné, avec une part aléatoire pour étaler les reprises
+    private Duration backoff(int attempts) {
+        long min = properties.getMinBackoff().toMillis();
+        long delay = Math.min(min << Math.min(attempts - 1, 30), properties.getMaxBackoff().toMillis());
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    private record Address(String value, Exception failure) {}
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
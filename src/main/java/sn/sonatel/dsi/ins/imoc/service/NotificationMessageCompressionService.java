@@ -0,0 +1,104 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.repository.MessageCodec;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationJdbcRepository;
+
+/**
+ * Compresses the messages stored before compression was enabled, see {@link MessageCodec}.
+ * <p>
+ * The table is walked by increasing id, one batch at a time and without a surrounding transaction, so that the job can
+ * run alongside the application traffic. Each batch is committed on its own, and each shard is walked in turn.
+ */
+@Service
+public class NotificationMessageCompressionService {
+
+    private final Logger log = LoggerFactory.getLogger(NotificationMessageCompressionService.class);
+
+    private final NotificationJdbcRepository notificationJdbcRepository;
+
+    private final MessageCodec messageCodec;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final NotificationShardService notificationShardService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BulkTaskRunner bulkTaskRunner;
+
+    public NotificationMessageCompressionService(
+        NotificationJdbcRepository notificationJdbcRepository,
+        MessageCodec messageCodec,
+        ApplicationProperties applicationProperties,
+        NotificationShardService notificationShardService,
+        PlatformTransactionManager transactionManager,
+        BulkTaskRunner bulkTaskRunner
+    ) {
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.messageCodec = messageCodec;
+        this.applicationProperties = applicationProperties;
+        this.notificationShardService = notificationShardService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkTaskRunner = bulkTaskRunner;
+    }
+
+    @Scheduled(cron = "${application.compression.rewrite-cron:-}")
+    public void scheduleCompression() {
+        bulkTaskRunner.submit("compression", this::compressExistingMessages);
+    }
+
+    public void compressExistingMessages() {
+        if (!messageCodec.isEnabled()) {
+            return;
+        }
+        notificationShardService.forEachShard(this::compressExistingMessages);
+    }
+
+    private void compressExistingMessages(int shard) {
+        int batchSize = applicationProperties.getCompression().getRewriteBatchSize();
+        long afterId = 0;
+        long scanned = 0;
+        long rewritten = 0;
+        while (true) {
+            List<Object[]> rows = new ArrayList<>();
+            long[] lastId = { -1 };
+            int[] count = { 0 };
+            notificationJdbcRepository.findStoredMessagesAfterId(afterId, batchSize, rs -> {
+                long id = rs.getLong(1);
+                String stored = rs.getString(2);
+                lastId[0] = id;
+                count[0]++;
+                if (messageCodec.isCompressible(stored)) {
+                    String encoded = messageCodec.encode(stored);
+                    if (!encoded.equals(stored)) {
+                        rows.add(new Object[] { encoded, id, stored });
+                    }
+                }
+            });
+            if (!rows.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> notificationJdbcRepository.updateStoredMessages(rows));
+            }
+            scanned += count[0];
+            rewritten += rows.size();
+            if (count[0] < batchSize) {
+                break;
+            }
+            afterId = lastId[0];
+        }
+        log.info(
+            "Compression des messages du shard {} : {} notifications parcourues, {} compressées",
+            notificationShardService.getShardName(shard),
+            scanned,
+            rewritten
+        );
+    }
+}
@@ -0,0 +1,180 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Service;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+
+/**
+ * Renders the templated notifications from the {@code i18n/messages} bundles, in the locale of the request.
+ * <p>
+ * Templates are {@link MessageFormat} patterns whose arguments are named instead of numbered, for
+ * example {@code Welcome {login}, booking {reservationId,number,#} is confirmed}. Each pattern is
+ * parsed once per template and language, then kept in a cache bounded to {@value #MAX_CACHED_TEMPLATES} templates.
+ */
+@Service
+public class NotificationMessageRenderer {
+
+    private static final int MAX_CACHED_TEMPLATES = 1024;
+
+    private final Logger log = LoggerFactory.getLogger(NotificationMessageRenderer.class);
+
+    private final MessageSource messageSource;
+
+    private final WeightedCache<TemplateKey, CompiledTemplate> templates;
+
+    public NotificationMessageRenderer(MessageSource messageSource, MeterRegistry meterRegistry) {
+        this.messageSource = messageSource;
+        // Chaque modèle pèse 1 : le poids maximal est le nombre de modèles
+        this.templates = new WeightedCache<>(
+            "notification.message.template.cache",
+            MAX_CACHED_TEMPLATES,
+            0,
+            template -> 1,
+            null,
+            null,
+            meterRegistry
+        );
+    }
+
+    /**
+     * Render the message of a templated notification in the locale of the current request.
+     * The notifications without template are left untouched.
+     *
+     * @param notificationDTO the notification to render.
+     * @return the same notification, for chaining.
+     */
+    public NotificationDTO render(NotificationDTO notificationDTO) {
+        if (notificationDTO.getTemplateKey() != null) {
+            notificationDTO.setMessage(
+                render(notificationDTO.getTemplateKey(), notificationDTO.getTemplateParams(), LocaleContextHolder.getLocale())
+            );
+        }
+        return notificationDTO;
+    }
+
+    public List<NotificationDTO> render(List<NotificationDTO> notificationDTOs) {
+        notificationDTOs.forEach(this::render);
+        return notificationDTOs;
+    }
+
+    /**
+     * Render a template.
+     *
+     * @param templateKey the key of the template in the message bundles.
+     * @param params the values of the named arguments, may be {@code null}.
+     * @param locale the locale to render the template in.
+     * @return the rendered message, or the template key if the template does not exist.
+     */
+    public String render(String templateKey, Map<String, String> params, Locale locale) {
+        // Les bundles sont par langue : inutile de compiler un modèle par pays
+        TemplateKey key = new TemplateKey(templateKey, locale.getLanguage());
+        CompiledTemplate template = templates.get(key, this::compile);
+        if (template == CompiledTemplate.MISSING) {
+            return templateKey;
+        }
+        try {
+            return template.format(params);
+        } catch (IllegalArgumentException e) {
+            log.warn("Paramètres invalides pour le modèle de notification {} : {}", templateKey, e.getMessage());
+            return templateKey;
+        }
+    }
+
+    private CompiledTemplate compile(TemplateKey key) {
+        Locale locale = Locale.forLanguageTag(key.language());
+        // Sans arguments, le MessageSource renvoie le motif brut, sans le formater
+        String pattern = messageSource.getMessage(key.templateKey(), null, null, locale);
+        if (pattern == null) {
+            log.warn("Modèle de notification inconnu : {}", key.templateKey());
+            return CompiledTemplate.MISSING;
+        }
+        List<String> names = new ArrayList<>();
+        return new CompiledTemplate(new MessageFormat(numberArguments(pattern, names), locale), names.toArray(String[]::new));
+    }
+
+    /**
+     * Replace the named arguments of a pattern by their index, collecting the names in index order.
+     * Quoted text, and the nested patterns of choice formats, are left as is.
+     */
+    static String numberArguments(String pattern, List<String> names) {
+        StringBuilder result = new StringBuilder(pattern.length());
+        boolean quoted = false;
+        int depth = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '{') {
+                depth++;
+                if (depth == 1) {
+                    int end = i + 1;
+                    while (end < pattern.length() && pattern.charAt(end) != ',' && pattern.charAt(end) != '}') {
+                        end++;
+                    }
+                    String name = pattern.substring(i + 1, end).trim();
+                    int index = names.indexOf(name);
+                    if (index < 0) {
+                        index = names.size();
+                        names.add(name);
+                    }
+                    result.append('{').append(index);
+                    i = end - 1;
+                    continue;
+                }
+            } else if (!quoted && c == '}') {
+                depth--;
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    private record TemplateKey(String templateKey, String language) {}
+
+    private record CompiledTemplate(MessageFormat format, String[] names) {
+        static final CompiledTemplate MISSING = new CompiledTemplate(null, null);
+
+        String format(Map<String, String> params) {
+            // MessageFormat n'est pas thread-safe : chaque rendu travaille sur sa copie, sans rien partager
+            MessageFormat copy = (MessageFormat) format.clone();
+            Object[] arguments = new Object[names.length];
+            Format[] formats = copy.getFormatsByArgumentIndex();
+            for (int i = 0; i < names.length; i++) {
+                String value = params == null ? null : params.get(names[i]);
+                arguments[i] = value == null ? "" : convert(value, i < formats.length ? formats[i] : null);
+            }
+            return copy.format(arguments);
+        }
+
+        // Les paramètres sont stockés en texte : les arguments typés sont reconvertis
+        private static Object convert(String value, Format format) {
+            try {
+                if (format instanceof NumberFormat) {
+                    return new BigDecimal(value);
+                }
+                if (format instanceof DateFormat) {
+                    return Date.from(Instant.parse(value));
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return value;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Cache of the serialized, and optionally gzipped, notification lists returned to each user.
+ * <p>
+ * Entries are keyed by operation, login and locale, the templated messages being rendered per locale, and tagged with a content version: every
+ * {@link NotificationsChangedEvent} bumps the version of the user, so that the next read
+ * serializes again. The cache is a {@link WeightedCache} bounded by the total size of the cached bytes, the least
+ * recently used entries being evicted first. Writes made by other instances are only seen
+ * once the entry expires, see {@code application.response-cache.time-to-live}.
+ */
+@Service
+public class NotificationPayloadCache {
+
+    public static final String METRIC_PREFIX = "notification.payload.cache";
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final Logger log = LoggerFactory.getLogger(NotificationPayloadCache.class);
+
+    private final ObjectMapper objectMapper;
+
+    private final long minCompressSize;
+
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final WeightedCache<Key, Entry> entries;
+
+    public NotificationPayloadCache(ObjectMapper objectMapper, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        ApplicationProperties.ResponseCache properties = applicationProperties.getResponseCache();
+        this.minCompressSize = properties.getMinCompressSize();
+        this.entries = new WeightedCache<>(
+            METRIC_PREFIX,
+            properties.getMaxBytes(),
+            0,
+            entry -> entry.payload.size(),
+            "bytes",
+            properties.getTimeToLive(),
+            meterRegistry
+        );
+    }
+
+    /**
+     * Get the cached payload of an operation for a user, serializing the value returned by the loader on a miss.
+     *
+     * @param operation the name of the operation, part of the key.
+     * @param userLogin the login of the user, part of the key.
+     * @param locale the locale the messages are rendered in, part of the key.
+     * @param loader the supplier of the value to serialize on a miss.
+     * @return the cached payload.
+     */
+    public Payload getOrLoad(String operation, String userLogin, Locale locale, Supplier<?> loader) {
+        Key key = new Key(operation, userLogin, locale.getLanguage());
+        long version = currentVersion(userLogin);
+        Entry entry = entries.get(key, cached -> cached.version == version);
+        if (entry != null) {
+            return entry.payload;
+        }
+        Payload payload = serialize(loader.get());
+        entries.put(key, new Entry(version, payload));
+        return payload;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsChanged(NotificationsChangedEvent event) {
+        if (event.isForAllUsers()) {
+            epoch.incrementAndGet();
+        } else {
+            versions.incrementAndGet(stripe(event.userLogin()));
+        }
+    }
+
+    public long getTotalBytes() {
+        return entries.getTotalWeight();
+    }
+
+    public long getEntryCount() {
+        return entries.getEntryCount();
+    }
+
+    private Payload serialize(Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            String etag = DigestUtils.md5DigestAsHex(json);
+            if (json.length < minCompressSize) {
+                return new Payload(json, null, etag);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+            return new Payload(json, out.toByteArray(), etag);
+        } catch (IOException e) {
+            log.error("Unable to serialize the notification payload", e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long currentVersion(String userLogin) {
+        // Les deux compteurs ne font que croître : leur somme change dès que l'un d'eux change
+        return epoch.get() + versions.get(stripe(userLogin));
+    }
+
+    private static int stripe(String userLogin) {
+        return Math.floorMod(userLogin.toLowerCase().hashCode(), VERSION_STRIPES);
+    }
+
+    /**
+     * A serialized response body.
+     *
+     * @param json the JSON bytes.
+     * @param gzip the gzipped JSON bytes, or {@code null} when the JSON is too small to be worth compressing.
+     * @param etag the digest of the JSON bytes, computed once with them.
+     */
+    public record Payload(byte[] json, byte[] gzip, String etag) {
+        long size() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+    private record Key(String operation, String userLogin, String language) {}
+
+    private record Entry(long version, Payload payload) {}
+}
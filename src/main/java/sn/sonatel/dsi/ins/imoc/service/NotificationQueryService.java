@@ -1,9 +1,15 @@
 package sn.sonatel.dsi.ins.imoc.service;
 
+import java.util.Comparator;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +26,9 @@ import tech.jhipster.service.QueryService;
  * The main input is a {@link NotificationCriteria} which gets converted to {@link Specification},
  * in a way that all the filters must apply.
  * It returns a {@link Page} of {@link NotificationDTO} which fulfills the criteria.
+ * <p>
+ * With sharding, a criteria on a single login is run on the shard of that login; any other criteria is run on
+ * every shard in parallel, and the results are merged.
  */
 @Service
 @Transactional(readOnly = true)
@@ -31,9 +40,20 @@ public class NotificationQueryService extends QueryService<Notification> {
 
     private final NotificationMapper notificationMapper;
 
-    public NotificationQueryService(NotificationRepository notificationRepository, NotificationMapper notificationMapper) {
+    private final NotificationMessageRenderer notificationMessageRenderer;
+
+    private final NotificationShardService notificationShardService;
+
+    public NotificationQueryService(
+        NotificationRepository notificationRepository,
+        NotificationMapper notificationMapper,
+        NotificationMessageRenderer notificationMessageRenderer,
+        NotificationShardService notificationShardService
+    ) {
         this.notificationRepository = notificationRepository;
         this.notificationMapper = notificationMapper;
+        this.notificationMessageRenderer = notificationMessageRenderer;
+        this.notificationShardService = notificationShardService;
     }
 
     /**
@@ -46,7 +66,27 @@ public class NotificationQueryService extends QueryService<Notification> {
     public Page<NotificationDTO> findByCriteria(NotificationCriteria criteria, Pageable page) {
         log.debug("find by criteria : {}, page: {}", criteria, page);
         final Specification<Notification> specification = createSpecification(criteria);
-        return notificationRepository.findAll(specification, page).map(notificationMapper::toDto);
+        Integer shard = singleShard(criteria);
+        if (shard != null) {
+            return notificationShardService
+                .onShard(shard, () -> notificationRepository.findAll(specification, page))
+                .map(notificationMapper::toDto)
+                .map(notificationMessageRenderer::render);
+        }
+        // Chaque shard renvoie ses lignes jusqu'à la fin de la page demandée : la page est découpée dans leur fusion
+        Pageable firstRows = page.isPaged() ? PageRequest.of(0, (int) page.getOffset() + page.getPageSize(), page.getSort()) : page;
+        List<Page<NotificationDTO>> pages = notificationShardService.scatter(true, current ->
+            notificationRepository.findAll(specification, firstRows).map(notificationMapper::toDto)
+        );
+        List<NotificationDTO> merged = pages
+            .stream()
+            .flatMap(shardPage -> shardPage.getContent().stream())
+            .sorted(comparator(page.getSort()))
+            .skip(page.isPaged() ? page.getOffset() : 0)
+            .limit(page.isPaged() ? page.getPageSize() : Long.MAX_VALUE)
+            .map(notificationMessageRenderer::render)
+            .toList();
+        return new PageImpl<>(merged, page, pages.stream().mapToLong(Page::getTotalElements).sum());
     }
 
     /**
@@ -58,7 +98,47 @@ public class NotificationQueryService extends QueryService<Notification> {
     public long countByCriteria(NotificationCriteria criteria) {
         log.debug("count by criteria : {}", criteria);
         final Specification<Notification> specification = createSpecification(criteria);
-        return notificationRepository.count(specification);
+        Integer shard = singleShard(criteria);
+        if (shard != null) {
+            return notificationShardService.onShard(shard, () -> notificationRepository.count(specification));
+        }
+        return notificationShardService
+            .scatter(true, current -> notificationRepository.count(specification))
+            .stream()
+            .mapToLong(Long::longValue)
+            .sum();
+    }
+
+    // Le shard qui détient toutes les notifications visées, ou null s'il faut les chercher sur tous les shards
+    private Integer singleShard(NotificationCriteria criteria) {
+        if (!notificationShardService.isSharded()) {
+            return 0;
+        }
+        if (criteria != null && criteria.getUserLogin() != null && criteria.getUserLogin().getEquals() != null) {
+            return notificationShardService.shardFor(criteria.getUserLogin().getEquals());
+        }
+        return null;
+    }
+
+    // Même ordre que la base : valeurs nulles en tête, chaînes sans tenir compte de la casse, puis par identifiant
+    private static Comparator<NotificationDTO> comparator(Sort sort) {
+        Comparator<NotificationDTO> comparator = (first, second) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<NotificationDTO> byProperty = Comparator.comparing(
+                notificationDTO -> new BeanWrapperImpl(notificationDTO).getPropertyValue(order.getProperty()),
+                Comparator.nullsFirst(NotificationQueryService::compareValues)
+            );
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator.thenComparing(NotificationDTO::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareValues(Object first, Object second) {
+        if (first instanceof String firstString && second instanceof String secondString) {
+            return String.CASE_INSENSITIVE_ORDER.compare(firstString, secondString);
+        }
+        return ((Comparable) first).compareTo(second);
     }
 
     /**
@@ -0,0 +1,118 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Purges the notifications that have been deleted, or read, for longer than the retention policy.
+ * <p>
+ * Ids grow with the creation date, so only the ids of the notifications created before the
+ * shortest retention are scanned. They are deleted by small id ranges, each statement being
+ * committed on its own and followed by a pause. Each shard is purged in turn.
+ */
+@Service
+public class NotificationRetentionService {
+
+    private final Logger log = LoggerFactory.getLogger(NotificationRetentionService.class);
+
+    private final NotificationJdbcRepository notificationJdbcRepository;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final NotificationShardService notificationShardService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BulkTaskRunner bulkTaskRunner;
+
+    private final Counter purged;
+
+    public NotificationRetentionService(
+        NotificationJdbcRepository notificationJdbcRepository,
+        ApplicationProperties applicationProperties,
+        ApplicationEventPublisher eventPublisher,
+        NotificationShardService notificationShardService,
+        PlatformTransactionManager transactionManager,
+        BulkTaskRunner bulkTaskRunner,
+        MeterRegistry meterRegistry
+    ) {
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.applicationProperties = applicationProperties;
+        this.eventPublisher = eventPublisher;
+        this.notificationShardService = notificationShardService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkTaskRunner = bulkTaskRunner;
+        this.purged = Counter.builder("notification.retention.purged").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${application.retention.cron:-}")
+    public void schedulePurge() {
+        bulkTaskRunner.submit("retention", this::purgeExpiredNotifications);
+    }
+
+    public void purgeExpiredNotifications() {
+        ApplicationProperties.Retention retention = applicationProperties.getRetention();
+        Instant now = Instant.now();
+        Instant deletedBefore = now.minus(retention.getDeletedAfter());
+        Instant readBefore = now.minus(retention.getReadAfter());
+        Instant createdBefore = deletedBefore.isAfter(readBefore) ? deletedBefore : readBefore;
+
+        long[] total = { 0 };
+        notificationShardService.forEachShard(shard -> total[0] += purge(retention, deletedBefore, readBefore, createdBefore));
+        if (total[0] > 0) {
+            eventPublisher.publishEvent(NotificationsChangedEvent.forAllUsers());
+        }
+        log.info("Purge des notifications : {} notifications supprimées", total[0]);
+    }
+
+    private long purge(ApplicationProperties.Retention retention, Instant deletedBefore, Instant readBefore, Instant createdBefore) {
+        long[] range = notificationJdbcRepository.findIdRange();
+        Long maxId = notificationJdbcRepository.findMaxIdCreatedBefore(createdBefore);
+        if (range == null || maxId == null) {
+            return 0;
+        }
+        long total = 0;
+        Long from = range[0];
+        while (from != null && from <= maxId) {
+            long start = from;
+            long end = Math.min(from + retention.getChunkSize(), maxId + 1);
+            int deleted = transactionTemplate.execute(status ->
+                notificationJdbcRepository.deleteExpiredInRange(start, end, deletedBefore, readBefore)
+            );
+            total += deleted;
+            purged.increment(deleted);
+            if (!pause(retention)) {
+                break;
+            }
+            // Les notifications déplacées d'un shard à l'autre laissent des trous dans les identifiants
+            from = notificationJdbcRepository.findMinIdFrom(end);
+        }
+        return total;
+    }
+
+    private boolean pause(ApplicationProperties.Retention retention) {
+        if (retention.getPause().isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(retention.getPause().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -2,21 +2,53 @@ package sn.sonatel.dsi.ins.imoc.service;
 
 import static sn.sonatel.dsi.ins.imoc.security.SecurityUtils.getCurrentUserLogin;
 
-import jakarta.persistence.EntityNotFoundException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.config.Constants;
 import sn.sonatel.dsi.ins.imoc.domain.Notification;
+import sn.sonatel.dsi.ins.imoc.domain.TemplateParamsConverter;
+import sn.sonatel.dsi.ins.imoc.repository.MessageCodec;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationRecipientJdbcRepository;
 import sn.sonatel.dsi.ins.imoc.repository.NotificationRepository;
 import sn.sonatel.dsi.ins.imoc.security.SecurityUtils;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationBulkActionDTO;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationBulkResultDTO;
 import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
 import sn.sonatel.dsi.ins.imoc.service.mapper.NotificationMapper;
 
 /**
  * Service Implementation for managing {@link sn.sonatel.dsi.ins.imoc.domain.Notification}.
+ * <p>
+ * The operations on the current user run on its shard; the others choose their shard explicitly, see
+ * {@link NotificationShardService}.
  */
 @Service
 @Transactional
@@ -24,13 +56,69 @@ public class NotificationService {
 
     private final Logger log = LoggerFactory.getLogger(NotificationService.class);
 
+    public static final String WELCOME_TEMPLATE = "notification.welcome";
+
+    private static final TemplateParamsConverter TEMPLATE_PARAMS_CONVERTER = new TemplateParamsConverter();
+
     private final NotificationRepository notificationRepository;
 
     private final NotificationMapper notificationMapper;
 
-    public NotificationService(NotificationRepository notificationRepository, NotificationMapper notificationMapper) {
+    private final NotificationJdbcRepository notificationJdbcRepository;
+
+    private final NotificationRecipientJdbcRepository notificationRecipientJdbcRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final NotificationMessageRenderer notificationMessageRenderer;
+
+    private final MessageCodec messageCodec;
+
+    private final NotificationArchiveService notificationArchiveService;
+
+    private final NotificationShardService notificationShardService;
+
+    private final NotificationSingleFlight notificationSingleFlight;
+
+    private final NotificationEmailService notificationEmailService;
+
+    private final TransactionTemplate readTransaction;
+
+    public NotificationService(
+        NotificationRepository notificationRepository,
+        NotificationMapper notificationMapper,
+        NotificationJdbcRepository notificationJdbcRepository,
+        NotificationRecipientJdbcRepository notificationRecipientJdbcRepository,
+        ObjectMapper objectMapper,
+        ApplicationEventPublisher eventPublisher,
+        ApplicationProperties applicationProperties,
+        NotificationMessageRenderer notificationMessageRenderer,
+        MessageCodec messageCodec,
+        NotificationArchiveService notificationArchiveService,
+        NotificationShardService notificationShardService,
+        NotificationSingleFlight notificationSingleFlight,
+        NotificationEmailService notificationEmailService,
+        PlatformTransactionManager transactionManager
+    ) {
         this.notificationRepository = notificationRepository;
         this.notificationMapper = notificationMapper;
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.notificationRecipientJdbcRepository = notificationRecipientJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.applicationProperties = applicationProperties;
+        this.notificationMessageRenderer = notificationMessageRenderer;
+        this.messageCodec = messageCodec;
+        this.notificationArchiveService = notificationArchiveService;
+        this.notificationShardService = notificationShardService;
+        this.notificationSingleFlight = notificationSingleFlight;
+        this.notificationEmailService = notificationEmailService;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
     }
 
     /**
@@ -41,42 +129,152 @@ public class NotificationService {
      */
     public NotificationDTO save(NotificationDTO notificationDTO) {
         log.debug("Request to save Notification : {}", notificationDTO);
-        Notification notification = notificationMapper.toEntity(notificationDTO);
-        notification = notificationRepository.save(notification);
-        return notificationMapper.toDto(notification);
+        return notificationShardService.onUserShard(notificationDTO.getUserLogin(), () -> {
+            NotificationDTO saved;
+            if (isCoalescable(notificationDTO)) {
+                saved = saveCoalesced(notificationDTO);
+            } else {
+                Notification notification = notificationRepository.save(notificationMapper.toEntity(notificationDTO));
+                eventPublisher.publishEvent(NotificationsChangedEvent.forUser(notification.getUserLogin()));
+                saved = notificationMessageRenderer.render(notificationMapper.toDto(notification));
+            }
+            // L'e-mail à envoyer est écrit dans la transaction de la notification
+            notificationEmailService.enqueue(saved, Boolean.TRUE.equals(notificationDTO.getSendEmail()));
+            return saved;
+        });
+    }
+
+    // Regroupement : uniquement les nouvelles notifications non lues liées à une réservation
+    private boolean isCoalescable(NotificationDTO notificationDTO) {
+        return (
+            applicationProperties.getCoalescing().isEnabled() &&
+            notificationDTO.getReservationId() != null &&
+            !Boolean.TRUE.equals(notificationDTO.getRead()) &&
+            !Boolean.TRUE.equals(notificationDTO.getDeleted())
+        );
+    }
+
+    private NotificationDTO saveCoalesced(NotificationDTO notificationDTO) {
+        String coalesceKey = coalesceKey(notificationDTO, Instant.now());
+        notificationJdbcRepository.upsertCoalesced(
+            messageCodec.encode(notificationDTO.getMessage()),
+            notificationDTO.getReservationId(),
+            notificationDTO.getUserLogin(),
+            notificationDTO.getKind(),
+            coalesceKey,
+            notificationDTO.getTemplateKey(),
+            TEMPLATE_PARAMS_CONVERTER.convertToDatabaseColumn(notificationDTO.getTemplateParams()),
+            getCurrentUserLogin().orElse(Constants.SYSTEM)
+        );
+        eventPublisher.publishEvent(NotificationsChangedEvent.forUser(notificationDTO.getUserLogin()));
+        return notificationRepository
+            .findOneByCoalesceKey(coalesceKey)
+            .map(notificationMapper::toDto)
+            .map(notificationMessageRenderer::render)
+            .orElseThrow();
+    }
+
+    // Fenêtres fixes : toutes les notifications d'une même fenêtre partagent la même clé
+    private String coalesceKey(NotificationDTO notificationDTO, Instant now) {
+        long window = now.getEpochSecond() / applicationProperties.getCoalescing().getWindow().toSeconds();
+        String key =
+            notificationDTO.getUserLogin().toLowerCase() +
+            '\n' +
+            notificationDTO.getReservationId() +
+            '\n' +
+            Objects.toString(notificationDTO.getKind(), "") +
+            '\n' +
+            window;
+        return DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Update a notification.
+     * Update a notification, with a single UPDATE statement when its owner does not change: the statement is
+     * conditioned on the given login. Otherwise the owner is read first, to notify both users. A notification given
+     * to a user of another shard stays on its shard until the next rebalance, see {@link NotificationShardRebalanceService}.
      *
      * @param notificationDTO the entity to save.
-     * @return the persisted entity.
+     * @return the given entity, its message rendered, or empty if the notification does not exist.
      */
-    public NotificationDTO update(NotificationDTO notificationDTO) {
+    public Optional<NotificationDTO> update(NotificationDTO notificationDTO) {
         log.debug("Request to update Notification : {}", notificationDTO);
-        Notification notification = notificationMapper.toEntity(notificationDTO);
-        notification = notificationRepository.save(notification);
-        return notificationMapper.toDto(notification);
+        return notificationShardService.onShard(shardOf(notificationDTO.getId()), () -> {
+            String userLogin = notificationDTO.getUserLogin();
+            if (userLogin != null && replace(notificationDTO, userLogin) > 0) {
+                eventPublisher.publishEvent(NotificationsChangedEvent.forUser(userLogin));
+                return Optional.of(notificationMessageRenderer.render(notificationDTO));
+            }
+            Optional<String> owner = notificationRepository.findUserLoginById(notificationDTO.getId());
+            if (owner.isEmpty() || replace(notificationDTO, null) == 0) {
+                return Optional.<NotificationDTO>empty();
+            }
+            publishChanged(owner.orElseThrow(), userLogin);
+            return Optional.of(notificationMessageRenderer.render(notificationDTO));
+        });
+    }
+
+    private int replace(NotificationDTO notificationDTO, String ownerLogin) {
+        return notificationJdbcRepository.updateById(
+            notificationDTO.getId(),
+            ownerLogin,
+            messageCodec.encode(notificationDTO.getMessage()),
+            notificationDTO.getReservationId(),
+            notificationDTO.getUserLogin(),
+            notificationDTO.getDeleted(),
+            notificationDTO.getRead(),
+            notificationDTO.getKind(),
+            notificationDTO.getTemplateKey(),
+            TEMPLATE_PARAMS_CONVERTER.convertToDatabaseColumn(notificationDTO.getTemplateParams())
+        );
     }
 
     /**
-     * Partially update a notification.
+     * Partially update a notification: the non-null fields are merged by a single UPDATE statement, then the
+     * notification is read back, which gives its owner. When the login is changed, the previous owner is read first.
      *
      * @param notificationDTO the entity to update partially.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if the notification does not exist.
      */
     public Optional<NotificationDTO> partialUpdate(NotificationDTO notificationDTO) {
         log.debug("Request to partially update Notification : {}", notificationDTO);
+        return notificationShardService.onShard(shardOf(notificationDTO.getId()), () -> {
+            // Sans login, ou avec celui du propriétaire, la notification ne change pas de main
+            if (merge(notificationDTO, notificationDTO.getUserLogin()) > 0) {
+                Optional<NotificationDTO> stored = readBack(notificationDTO.getId());
+                stored.ifPresent(notification ->
+                    eventPublisher.publishEvent(NotificationsChangedEvent.forUser(notification.getUserLogin()))
+                );
+                return stored;
+            }
+            if (notificationDTO.getUserLogin() == null) {
+                return Optional.<NotificationDTO>empty();
+            }
+            Optional<String> owner = notificationRepository.findUserLoginById(notificationDTO.getId());
+            if (owner.isEmpty() || merge(notificationDTO, null) == 0) {
+                return Optional.<NotificationDTO>empty();
+            }
+            publishChanged(owner.orElseThrow(), notificationDTO.getUserLogin());
+            return readBack(notificationDTO.getId());
+        });
+    }
 
-        return notificationRepository
-            .findById(notificationDTO.getId())
-            .map(existingNotification -> {
-                notificationMapper.partialUpdate(existingNotification, notificationDTO);
+    private int merge(NotificationDTO notificationDTO, String ownerLogin) {
+        return notificationJdbcRepository.partialUpdateById(
+            notificationDTO.getId(),
+            ownerLogin,
+            messageCodec.encode(notificationDTO.getMessage()),
+            notificationDTO.getReservationId(),
+            notificationDTO.getUserLogin(),
+            notificationDTO.getDeleted(),
+            notificationDTO.getRead(),
+            notificationDTO.getKind(),
+            notificationDTO.getTemplateKey(),
+            TEMPLATE_PARAMS_CONVERTER.convertToDatabaseColumn(notificationDTO.getTemplateParams())
+        );
+    }
 
-                return existingNotification;
-            })
-            .map(notificationRepository::save)
-            .map(notificationMapper::toDto);
+    private Optional<NotificationDTO> readBack(Long id) {
+        return notificationRepository.findById(id).map(notificationMapper::toDto).map(notificationMessageRenderer::render);
     }
 
     /**
@@ -88,7 +286,12 @@ public class NotificationService {
     @Transactional(readOnly = true)
     public Optional<NotificationDTO> findOne(Long id) {
         log.debug("Request to get Notification : {}", id);
-        return notificationRepository.findById(id).map(notificationMapper::toDto);
+        return notificationShardService
+            .scatter(true, shard -> notificationRepository.findById(id).map(notificationMapper::toDto))
+            .stream()
+            .flatMap(Optional::stream)
+            .findFirst()
+            .map(notificationMessageRenderer::render);
     }
 
     /**
@@ -98,29 +301,219 @@ public class NotificationService {
      */
     public void delete(Long id) {
         log.debug("Request to delete Notification : {}", id);
-        notificationRepository.deleteById(id);
+        notificationShardService.onShard(shardOf(id), () ->
+            notificationRepository
+                .findUserLoginById(id)
+                .ifPresent(owner -> {
+                    notificationRepository.deleteById(id);
+                    eventPublisher.publishEvent(NotificationsChangedEvent.forUser(owner));
+                })
+        );
+    }
+
+    // Seuls l'ancien et, si le login a changé, le nouveau propriétaire sont concernés
+    private void publishChanged(String previousLogin, String userLogin) {
+        eventPublisher.publishEvent(NotificationsChangedEvent.forUser(previousLogin));
+        if (userLogin != null && !userLogin.equalsIgnoreCase(previousLogin)) {
+            eventPublisher.publishEvent(NotificationsChangedEvent.forUser(userLogin));
+        }
+    }
+
+    // Les identifiants sont uniques entre les shards : seul le shard qui détient la notification la trouve
+    private int shardOf(Long id) {
+        if (!notificationShardService.isSharded() || id == null) {
+            return 0;
+        }
+        int shard = notificationShardService.scatter(true, current -> notificationRepository.existsById(id)).indexOf(true);
+        return Math.max(shard, 0);
     }
 
     // RETOURNE L'ENSEMBLE DES NOTIFICATIONS DE L'UTILISATEUR CONNECTE
+    // Les lectures partagées ouvrent leur transaction elles-mêmes : un appelant qui attend ne tient pas de connexion
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<NotificationDTO> getNotificationsHistory() {
-        return notificationMapper.toDto(notificationRepository.findAllByUserLoginIgnoreCase(getCurrentUserLogin().orElseThrow()));
+        String login = getCurrentUserLogin().orElseThrow();
+        // Les messages sont rendus dans la langue de l'appelant ; la liste partagée n'est pas modifiable
+        return notificationSingleFlight.execute("history", login, LocaleContextHolder.getLocale(), () ->
+            List.copyOf(
+                readTransaction.execute(status ->
+                    withBroadcasts(notificationMapper.toDto(notificationRepository.findAllByUserLoginIgnoreCase(login)), login, false)
+                )
+            )
+        );
+    }
+
+    // Historique complété par les notifications archivées ; la table prime en cas de doublon
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<NotificationDTO> getNotificationsHistory(boolean includeArchived) {
+        List<NotificationDTO> notifications = getNotificationsHistory();
+        if (!includeArchived) {
+            return notifications;
+        }
+        Map<Long, NotificationDTO> archived = notificationArchiveService.findArchived(getCurrentUserLogin().orElseThrow());
+        if (archived.isEmpty()) {
+            return notifications;
+        }
+        // La liste partagée n'est pas modifiée, seule la copie des archives l'est
+        notifications.forEach(notificationDTO -> archived.remove(notificationDTO.getId()));
+        List<NotificationDTO> merged = new ArrayList<>(notifications.size() + archived.size());
+        merged.addAll(notifications);
+        merged.addAll(notificationMessageRenderer.render(new ArrayList<>(archived.values())));
+        merged.sort(Comparator.comparing(NotificationDTO::getId));
+        return merged;
     }
 
     // RETOURNE L'ENSEMBLE DES NOTIFICATIONS NON LUE DE L'UTILISATEUR CONNECTE
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<NotificationDTO> getNonLueNotificationsHistory() {
-        return notificationMapper.toDto(
-            notificationRepository.findAllByUserLoginIgnoreCaseAndDeletedIsFalseAndReadIsFalse(getCurrentUserLogin().orElseThrow())
+        String login = getCurrentUserLogin().orElseThrow();
+        return notificationSingleFlight.execute("history-non-lue", login, LocaleContextHolder.getLocale(), () ->
+            List.copyOf(
+                readTransaction.execute(status ->
+                    withBroadcasts(
+                        notificationMapper.toDto(notificationRepository.findAllByUserLoginIgnoreCaseAndDeletedIsFalseAndReadIsFalse(login)),
+                        login,
+                        true
+                    )
+                )
+            )
         );
     }
 
+    // Fusionne les notifications personnelles et diffusées, dans l'ordre de création (les identifiants viennent de la même séquence)
+    private List<NotificationDTO> withBroadcasts(List<NotificationDTO> notifications, String login, boolean nonLueOnly) {
+        List<NotificationDTO> broadcasts = notificationRecipientJdbcRepository.findByUserLogin(login, nonLueOnly, (rs, rowNum) ->
+            toDto(rs)
+        );
+        notificationMessageRenderer.render(notifications);
+        if (broadcasts.isEmpty()) {
+            return notifications;
+        }
+        List<NotificationDTO> merged = new ArrayList<>(notifications.size() + broadcasts.size());
+        merged.addAll(notifications);
+        merged.addAll(broadcasts);
+        merged.sort(Comparator.comparing(NotificationDTO::getId));
+        return merged;
+    }
+
+    private NotificationDTO toDto(ResultSet rs) throws SQLException {
+        NotificationDTO notificationDTO = new NotificationDTO();
+        notificationDTO.setId(rs.getLong(NotificationJdbcRepository.COLUMN_ID));
+        notificationDTO.setMessage(messageCodec.decode(rs.getString(NotificationJdbcRepository.COLUMN_MESSAGE)));
+        notificationDTO.setUserLogin(rs.getString(NotificationJdbcRepository.COLUMN_USER_LOGIN));
+        notificationDTO.setDeleted(rs.getBoolean(NotificationJdbcRepository.COLUMN_DELETED));
+        notificationDTO.setRead(rs.getBoolean(NotificationJdbcRepository.COLUMN_READ));
+        notificationDTO.setKind(rs.getString(NotificationJdbcRepository.COLUMN_KIND));
+        notificationDTO.setOccurrences(rs.getInt(NotificationJdbcRepository.COLUMN_OCCURRENCES));
+        notificationDTO.setBroadcast(rs.getBoolean(NotificationJdbcRepository.COLUMN_BROADCAST));
+        notificationDTO.setCreatedDate(NotificationJdbcRepository.getInstant(rs, NotificationJdbcRepository.COLUMN_CREATED_DATE));
+        return notificationDTO;
+    }
+
+    /**
+     * Write the unread notifications of the current user as a JSON array, straight from the JDBC rows.
+     * The output is the same as the serialization of {@link #getNonLueNotificationsHistory()}.
+     *
+     * @param out the stream to write the JSON array to.
+     * @throws IOException if the stream cannot be written.
+     */
+    @Transactional(readOnly = true)
+    public void writeNonLueNotificationsHistory(OutputStream out) throws IOException {
+        String login = getCurrentUserLogin().orElseThrow();
+        Locale locale = LocaleContextHolder.getLocale();
+        try (JsonGenerator generator = objectMapper.writer().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            notificationJdbcRepository.streamNonLueByUserLogin(login, rs -> writeNotification(rs, generator, locale));
+            generator.writeEndArray();
+        }
+    }
+
+    // Mêmes propriétés, dans le même ordre, que NotificationDTO
+    private void writeNotification(ResultSet rs, JsonGenerator generator, Locale locale) throws SQLException {
+        try {
+            String templateKey = rs.getString(NotificationJdbcRepository.COLUMN_TEMPLATE_KEY);
+            String templateParams = rs.getString(NotificationJdbcRepository.COLUMN_TEMPLATE_PARAMS);
+            String message = templateKey == null
+                ? messageCodec.decode(rs.getString(NotificationJdbcRepository.COLUMN_MESSAGE))
+                : notificationMessageRenderer.render(templateKey, TEMPLATE_PARAMS_CONVERTER.convertToEntityAttribute(templateParams), locale);
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong(NotificationJdbcRepository.COLUMN_ID));
+            generator.writeStringField("message", message);
+            long reservationId = rs.getLong(NotificationJdbcRepository.COLUMN_RESERVATION_ID);
+            if (rs.wasNull()) {
+                generator.writeNullField("reservationId");
+            } else {
+                generator.writeNumberField("reservationId", reservationId);
+            }
+            generator.writeStringField("userLogin", rs.getString(NotificationJdbcRepository.COLUMN_USER_LOGIN));
+            generator.writeBooleanField("deleted", rs.getBoolean(NotificationJdbcRepository.COLUMN_DELETED));
+            generator.writeBooleanField("read", rs.getBoolean(NotificationJdbcRepository.COLUMN_READ));
+            generator.writeStringField("kind", rs.getString(NotificationJdbcRepository.COLUMN_KIND));
+            generator.writeNumberField("occurrences", rs.getInt(NotificationJdbcRepository.COLUMN_OCCURRENCES));
+            generator.writeBooleanField("broadcast", rs.getBoolean(NotificationJdbcRepository.COLUMN_BROADCAST));
+            generator.writeStringField("templateKey", templateKey);
+            // Déjà du JSON compact, écrit tel quel
+            generator.writeFieldName("templateParams");
+            if (templateParams == null) {
+                generator.writeNull();
+            } else {
+                generator.writeRawValue(templateParams);
+            }
+            Instant createdDate = NotificationJdbcRepository.getInstant(rs, NotificationJdbcRepository.COLUMN_CREATED_DATE);
+            generator.writeStringField("createdDate", createdDate == null ? null : createdDate.toString());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     // MARQUE NOTIFICATIONS COMME LUE
-    public void marquerLue(Long id) {
-        String currentUserLogin = String.valueOf(getCurrentUserLogin());
-        Notification notification = notificationRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException("Notification not found with id " + id));
-        notification.setRead(true);
-        notificationRepository.save(notification);
+    // Une seule requête UPDATE, limitée aux notifications de l'utilisateur connecté
+    // Sinon, l'identifiant peut être celui d'une diffusion reçue par l'utilisateur
+    public boolean marquerLue(Long id) {
+        String currentUserLogin = getCurrentUserLogin().orElseThrow();
+        if (
+            notificationJdbcRepository.markReadByIdAndUserLogin(id, currentUserLogin) == 0 &&
+            notificationRecipientJdbcRepository.updateReadByBroadcastIdInAndUserLogin(List.of(id), currentUserLogin, true) == 0
+        ) {
+            return false;
+        }
+        eventPublisher.publishEvent(NotificationsChangedEvent.forUser(currentUserLogin));
+        return true;
+    }
+
+    /**
+     * Apply a state change to a set of notifications of the current user, with one statement per chunk of ids.
+     * Ids of notifications that do not exist or belong to another user are ignored.
+     *
+     * @param bulkActionDTO the action and the ids of the notifications.
+     * @return the number of requested and affected notifications.
+     */
+    public NotificationBulkResultDTO bulk(NotificationBulkActionDTO bulkActionDTO) {
+        log.debug("Request to apply bulk action : {}", bulkActionDTO);
+        String currentUserLogin = getCurrentUserLogin().orElseThrow();
+        List<Long> ids = bulkActionDTO.getIds().stream().distinct().toList();
+        int chunkSize = applicationProperties.getBulk().getChunkSize();
+        int affected = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            affected += switch (bulkActionDTO.getAction()) {
+                case READ -> notificationJdbcRepository.updateReadByIdInAndUserLogin(chunk, currentUserLogin, true);
+                case UNREAD -> notificationJdbcRepository.updateReadByIdInAndUserLogin(chunk, currentUserLogin, false);
+                case SOFT_DELETE -> notificationJdbcRepository.softDeleteByIdInAndUserLogin(chunk, currentUserLogin);
+                case HARD_DELETE -> notificationJdbcRepository.deleteByIdInAndUserLogin(chunk, currentUserLogin);
+            };
+            affected += switch (bulkActionDTO.getAction()) {
+                case READ -> notificationRecipientJdbcRepository.updateReadByBroadcastIdInAndUserLogin(chunk, currentUserLogin, true);
+                case UNREAD -> notificationRecipientJdbcRepository.updateReadByBroadcastIdInAndUserLogin(chunk, currentUserLogin, false);
+                case SOFT_DELETE -> notificationRecipientJdbcRepository.softDeleteByBroadcastIdInAndUserLogin(chunk, currentUserLogin);
+                case HARD_DELETE -> notificationRecipientJdbcRepository.deleteByBroadcastIdInAndUserLogin(chunk, currentUserLogin);
+            };
+        }
+        if (affected > 0) {
+            eventPublisher.publishEvent(NotificationsChangedEvent.forUser(currentUserLogin));
+        }
+        return new NotificationBulkResultDTO(bulkActionDTO.getAction(), ids.size(), affected);
     }
 
     @Transactional
@@ -140,52 +533,87 @@ public class NotificationService {
         // Récupérer les notifications non lues pour cet utilisateur
         List<Notification> notifications = notificationRepository.findByUserLoginAndReadIsFalse(currentUserLogin);
 
+        int broadcasts = notificationRecipientJdbcRepository.markAllReadByUserLogin(currentUserLogin);
+        if (broadcasts > 0) {
+            eventPublisher.publishEvent(NotificationsChangedEvent.forUser(currentUserLogin));
+            log.info("{} diffusions marquées comme lues pour l'utilisateur: {}", broadcasts, currentUserLogin);
+        }
+
         if (notifications.isEmpty()) {
             log.info("Aucune notification non lue pour l'utilisateur: {}", currentUserLogin);
         } else {
             notifications.forEach(notification -> notification.setRead(true));
             notificationRepository.saveAll(notifications);
+            eventPublisher.publishEvent(NotificationsChangedEvent.forUser(currentUserLogin));
             log.info("{} notifications marquées comme lues pour l'utilisateur: {}", notifications.size(), currentUserLogin);
         }
     }
 
     // Suppression d'une notification
     public void deleteNotificationById(Long id) {
-        notificationRepository
-            .findById(id)
-            .ifPresent(notification -> {
-                notification.setDeleted(true);
-                notificationRepository.save(notification);
-            });
+        notificationShardService.onShard(shardOf(id), () ->
+            notificationRepository
+                .findById(id)
+                .ifPresent(notification -> {
+                    notification.setDeleted(true);
+                    notificationRepository.save(notification);
+                    eventPublisher.publishEvent(NotificationsChangedEvent.forUser(notification.getUserLogin()));
+                })
+        );
     }
 
     // Suppression de toutes les notifications d'un utilisate@Transactional
     public void deleteNotificationsByUser(String userLogin) {
-        List<Notification> notifications = notificationRepository.findByUserLoginAndDeletedFalse(userLogin);
-        for (Notification notification : notifications) {
-            notification.setDeleted(true); // Marquer comme supprimé
-            notificationRepository.save(notification);
-        }
+        notificationShardService.onUserShard(userLogin, () -> {
+            List<Notification> notifications = notificationRepository.findByUserLoginAndDeletedFalse(userLogin);
+            for (Notification notification : notifications) {
+                notification.setDeleted(true); // Marquer comme supprimé
+                notificationRepository.save(notification);
+            }
+            notificationRecipientJdbcRepository.softDeleteAllByUserLogin(userLogin);
+        });
+        eventPublisher.publishEvent(NotificationsChangedEvent.forUser(userLogin));
     }
 
     public void welcomeNotification(NotificationDTO notificationDTO) {
         // Création de l'entité Notification à partir du DTO
         Notification notification = new Notification();
         notification.setMessage(notificationDTO.getMessage());
+        // Sans texte fourni, seul le modèle et le login sont stockés : le message est rendu à la lecture
+        if (notificationDTO.getMessage() == null) {
+            notification.setTemplateKey(Objects.requireNonNullElse(notificationDTO.getTemplateKey(), WELCOME_TEMPLATE));
+            notification.setTemplateParams(
+                notificationDTO.getTemplateParams() != null
+                    ? notificationDTO.getTemplateParams()
+                    : Map.of("login", notificationDTO.getUserLogin())
+            );
+        }
         notification.setUserLogin(notificationDTO.getUserLogin());
         notification.setReservationId(notificationDTO.getReservationId());
         notification.setDeleted(notificationDTO.getDeleted());
         notification.setRead(notificationDTO.getRead());
 
-        // Sauvegarde de la notification en base de données
-        notificationRepository.save(notification);
+        // Sauvegarde de la notification en base de données, sur le shard du destinataire
+        notificationShardService.onUserShard(notification.getUserLogin(), () -> notificationRepository.save(notification));
+        eventPublisher.publishEvent(NotificationsChangedEvent.forUser(notification.getUserLogin()));
 
         // Log pour vérifier la notification envoyée
         System.out.println("Notification de bienvenue : " + notificationDTO);
     }
 
     // Méthode pour compter les notifications non lues
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Long countNotifications(String userLogin) {
-        return notificationRepository.countByUserLoginAndReadFalseAndDeletedFalse(userLogin);
+        // Le compte ne dépend pas de la langue : tous les appelants partagent la même requête
+        return notificationSingleFlight.execute("count", userLogin, Locale.ROOT, () ->
+            readTransaction.execute(status ->
+                notificationShardService.onUserShard(
+                    userLogin,
+                    () ->
+                        notificationRepository.countByUserLoginAndReadFalseAndDeletedFalse(userLogin) +
+                        notificationRecipientJdbcRepository.countNonLueByUserLogin(userLogin)
+                )
+            )
+        );
     }
 }
@@ -0,0 +1,115 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationShardJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Moves the notifications of each user to the shard the hash ring gives it, after shards have been added.
+ * <p>
+ * Each shard is walked login by login. The rows of a user held by another shard are copied to it, with the
+ * broadcasts they refer to, then deleted: a rebalance stopped midway can be started again. Until its rows are
+ * moved, a user does not see them, so the rebalance should be run right after the new shards are deployed.
+ */
+@Service
+public class NotificationShardRebalanceService {
+
+    private final Logger log = LoggerFactory.getLogger(NotificationShardRebalanceService.class);
+
+    private final NotificationShardService notificationShardService;
+
+    private final NotificationShardJdbcRepository notificationShardJdbcRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public NotificationShardRebalanceService(
+        NotificationShardService notificationShardService,
+        NotificationShardJdbcRepository notificationShardJdbcRepository,
+        ApplicationEventPublisher eventPublisher,
+        ApplicationProperties applicationProperties,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.notificationShardService = notificationShardService;
+        this.notificationShardJdbcRepository = notificationShardJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.applicationProperties = applicationProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Move every user held by a shard other than its own.
+     *
+     * @return the number of moved users.
+     */
+    public synchronized long rebalance() {
+        if (!notificationShardService.isSharded()) {
+            return 0;
+        }
+        int batchSize = applicationProperties.getSharding().getRebalanceBatchSize();
+        long moved = 0;
+        for (int shard = 0; shard < notificationShardService.getShardCount(); shard++) {
+            int current = shard;
+            String afterLogin = "";
+            while (true) {
+                String after = afterLogin;
+                List<String> logins = notificationShardService.onShard(current, () ->
+                    notificationShardJdbcRepository.findUserLogins(after, batchSize)
+                );
+                if (logins.isEmpty()) {
+                    break;
+                }
+                for (String login : logins) {
+                    int target = notificationShardService.shardFor(login);
+                    if (target != current) {
+                        move(login, current, target);
+                        moved++;
+                    }
+                }
+                afterLogin = logins.get(logins.size() - 1);
+            }
+            log.info("Rééquilibrage : shard {} parcouru", notificationShardService.getShardName(current));
+        }
+        if (moved > 0) {
+            eventPublisher.publishEvent(NotificationsChangedEvent.forAllUsers());
+        }
+        log.info("Rééquilibrage terminé : {} utilisateurs déplacés", moved);
+        return moved;
+    }
+
+    private void move(String userLogin, int from, int to) {
+        List<Map<String, Object>> notifications = notificationShardService.onShard(from, () ->
+            notificationShardJdbcRepository.findNotificationsByUserLogin(userLogin)
+        );
+        List<Map<String, Object>> recipients = notificationShardService.onShard(from, () ->
+            notificationShardJdbcRepository.findRecipientsByUserLogin(userLogin)
+        );
+        List<Long> broadcastIds = recipients.stream().map(row -> ((Number) row.get("broadcast_id")).longValue()).toList();
+        List<Map<String, Object>> broadcasts = broadcastIds.isEmpty()
+            ? List.of()
+            : notificationShardService.onShard(from, () -> notificationShardJdbcRepository.findBroadcastsByIdIn(broadcastIds));
+        notificationShardService.onShard(to, () ->
+            transactionTemplate.executeWithoutResult(status -> {
+                notificationShardJdbcRepository.insertIgnore(NotificationShardJdbcRepository.NOTIFICATION_BROADCAST, broadcasts);
+                notificationShardJdbcRepository.insertIgnore(NotificationShardJdbcRepository.NOTIFICATION, notifications);
+                notificationShardJdbcRepository.insertIgnore(NotificationShardJdbcRepository.NOTIFICATION_RECIPIENT, recipients);
+            })
+        );
+        // Supprimées seulement une fois la copie validée sur le nouveau shard
+        notificationShardService.onShard(from, () ->
+            transactionTemplate.executeWithoutResult(status -> notificationShardJdbcRepository.deleteByUserLogin(userLogin))
+        );
+        log.debug("Notifications de {} déplacées du shard {} vers le shard {}", userLogin, from, to);
+    }
+}
@@ -0,0 +1,160 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.config.ShardContext;
+import sn.sonatel.dsi.ins.imoc.config.ShardRing;
+
+/**
+ * Runs work on the shard of a user, or on every shard, see {@link sn.sonatel.dsi.ins.imoc.config.ShardingConfiguration}.
+ * <p>
+ * Without sharding there is a single shard, and every method runs its action in the calling thread.
+ */
+@Service
+public class NotificationShardService {
+
+    private final ShardRing shardRing;
+
+    private final ExecutorService executor;
+
+    private final TransactionTemplate readTransaction;
+
+    private final TransactionTemplate writeTransaction;
+
+    public NotificationShardService(ObjectProvider<ShardRing> shardRing, PlatformTransactionManager transactionManager) {
+        this.shardRing = shardRing.getIfAvailable();
+        this.executor = this.shardRing == null
+            ? null
+            : Executors.newFixedThreadPool(this.shardRing.size(), new CustomizableThreadFactory("notification-shard-"));
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isSharded() {
+        return shardRing != null;
+    }
+
+    public int getShardCount() {
+        return shardRing == null ? 1 : shardRing.size();
+    }
+
+    public String getShardName(int shard) {
+        return shardRing == null ? "primary" : shardRing.name(shard);
+    }
+
+    /**
+     * @return the index of the shard holding the notifications of a user, the first shard when the login is {@code null}.
+     */
+    public int shardFor(String userLogin) {
+        return shardRing == null || userLogin == null ? 0 : shardRing.shardFor(userLogin);
+    }
+
+    /**
+     * Run an action on a shard, in the calling thread and its transaction, if any. The transaction must not have
+     * run a statement yet, or the action runs on the shard of its first statement.
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        return shardRing == null ? action.get() : ShardContext.call(shard, action);
+    }
+
+    public void onShard(int shard, Runnable action) {
+        onShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T onUserShard(String userLogin, Supplier<T> action) {
+        return onShard(shardFor(userLogin), action);
+    }
+
+    public void onUserShard(String userLogin, Runnable action) {
+        onShard(shardFor(userLogin), action);
+    }
+
+    /**
+     * Run an action on each shard in turn, in the calling thread. The action must not run inside a transaction
+     * begun before, which would keep the connection of the first shard.
+     */
+    public void forEachShard(IntConsumer action) {
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            int current = shard;
+            onShard(shard, () -> action.accept(current));
+        }
+    }
+
+    /**
+     * Run an action on every shard in parallel, each in its own transaction, and gather the results.
+     *
+     * @param readOnly whether the transactions are read-only.
+     * @param action the action, called with the index of the shard.
+     * @return the results, by shard index.
+     */
+    public <T> List<T> scatter(boolean readOnly, IntFunction<T> action) {
+        if (shardRing == null) {
+            return Collections.singletonList(action.apply(0));
+        }
+        TransactionTemplate transaction = readOnly ? readTransaction : writeTransaction;
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardRing.size());
+        for (int shard = 0; shard < shardRing.size(); shard++) {
+            int current = shard;
+            futures.add(
+                CompletableFuture.supplyAsync(
+                    () -> ShardContext.call(current, () -> transaction.execute(status -> action.apply(current))),
+                    executor
+                )
+            );
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Group logins by the shard holding their notifications.
+     */
+    public Map<Integer, List<String>> groupByShard(Collection<String> userLogins) {
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        for (String userLogin : userLogins) {
+            groups.computeIfAbsent(shardFor(userLogin), shard -> new ArrayList<>()).add(userLogin);
+        }
+        return groups;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Coalesces the concurrent identical reads of a user: while a query runs for an operation and a login, the other
+ * callers wait for its result instead of running the same query.
+ * <p>
+ * A caller only joins a query started after the last change to the notifications of the user, tracked like in
+ * {@link NotificationPayloadCache}, so that a user reading after a write never gets a result older than the write.
+ * A caller waits at most {@code application.single-flight.max-wait}, then runs the query itself, as it does when the
+ * shared query failed. The result is shared: the loaders return unmodifiable values.
+ * <p>
+ * Metrics: {@code notification.single.flight.calls}, tagged by operation and by result, {@code leader},
+ * {@code coalesced} or {@code timeout}.
+ */
+@Service
+public class NotificationSingleFlight {
+
+    public static final String METRIC_PREFIX = "notification.single.flight";
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final Logger log = LoggerFactory.getLogger(NotificationSingleFlight.class);
+
+    private final boolean enabled;
+
+    private final long maxWaitMillis;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Key, Flight> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    public NotificationSingleFlight(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.enabled = applicationProperties.getSingleFlight().isEnabled();
+        this.maxWaitMillis = applicationProperties.getSingleFlight().getMaxWait().toMillis();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run a read for a user, or join the identical read already running.
+     *
+     * @param operation the name of the read, part of the key.
+     * @param userLogin the login of the user, part of the key.
+     * @param locale the locale the messages are rendered in, part of the key.
+     * @param loader the read.
+     * @return the result of the read.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, String userLogin, Locale locale, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(operation, userLogin.toLowerCase(), locale.getLanguage());
+        long version = currentVersion(key.userLogin);
+        Flight flight = flights.get(key);
+        if (flight == null) {
+            Flight mine = new Flight(version);
+            flight = flights.putIfAbsent(key, mine);
+            if (flight == null) {
+                return lead(key, mine, loader);
+            }
+        }
+        if (flight.version != version) {
+            // Requête commencée avant la dernière modification : son résultat peut être périmé
+            return loader.get();
+        }
+        try {
+            Object result = flight.result.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            count(operation, "coalesced");
+            return (T) result;
+        } catch (TimeoutException e) {
+            count(operation, "timeout");
+        } catch (ExecutionException e) {
+            log.debug("Shared {} read failed, reading again: {}", operation, e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return loader.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsChanged(NotificationsChangedEvent event) {
+        if (event.isForAllUsers()) {
+            epoch.incrementAndGet();
+        } else {
+            versions.incrementAndGet(stripe(event.userLogin().toLowerCase()));
+        }
+    }
+
+    private <T> T lead(Key key, Flight flight, Supplier<T> loader) {
+        count(key.operation, "leader");
+        try {
+            T result = loader.get();
+            flight.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private void count(String operation, String result) {
+        Counter.builder(METRIC_PREFIX + ".calls").tag("operation", operation).tag("result", result).register(meterRegistry).increment();
+    }
+
+    private long currentVersion(String userLogin) {
+        // Les deux compteurs ne font que croître : leur somme change dès que l'un d'eux change
+        return epoch.get() + versions.get(stripe(userLogin));
+    }
+
+    private static int stripe(String userLogin) {
+        return Math.floorMod(userLogin.hashCode(), VERSION_STRIPES);
+    }
+
+    private record Key(String operation, String userLogin, String language) {}
+
+    private static final class Flight {
+
+        private final long version;
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Flight(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.context.MessageSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+
+/**
+ * Renders the HTML body of the notifications, sent by e-mail and shown as preview, from the Thymeleaf
+ * templates of {@code templates/notification}.
+ * <p>
+ * A templated notification uses {@code <templateKey>.html} when it exists, the other ones {@code default.html}.
+ * The model holds the rendered {@code message}, the {@code templateKey} and the {@code params}, but not the user:
+ * the same broadcast renders once for all its recipients. Parsed templates are kept by the Thymeleaf cache, bounded
+ * by {@code application.templates.parsed-cache-size}; rendered bodies are kept by template, language and a hash of
+ * the model in a {@link WeightedCache}, the least recently used being evicted first. Both caches are disabled with
+ * {@code spring.thymeleaf.cache}.
+ * <p>
+ * Metrics: {@code notification.template.render}, {@code notification.template.cache.requests},
+ * {@code notification.template.cache.hit.ratio}, {@code notification.template.cache.entries} and
+ * {@code notification.template.cache.size}.
+ */
+@Service
+public class NotificationTemplateRenderer {
+
+    public static final String METRIC_PREFIX = "notification.template";
+
+    static final String TEMPLATE_LOCATION = "templates/notification/";
+
+    static final String DEFAULT_TEMPLATE = "default";
+
+    // Les clés deviennent des noms de fichiers : pas de séparateur de chemin
+    private static final Pattern TEMPLATE_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private final SpringTemplateEngine templateEngine;
+
+    private final boolean cache;
+
+    private final Map<String, String> templateNames = new ConcurrentHashMap<>();
+
+    // Taille en caractères, bornée aussi en nombre d'entrées
+    private final WeightedCache<Key, String> fragments;
+
+    private final Timer render;
+
+    public NotificationTemplateRenderer(
+        MessageSource messageSource,
+        ThymeleafProperties thymeleafProperties,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.Templates properties = applicationProperties.getTemplates();
+        this.cache = thymeleafProperties.isCache();
+
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix(TEMPLATE_LOCATION);
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        templateResolver.setCacheable(cache);
+        StandardCacheManager cacheManager = new StandardCacheManager();
+        cacheManager.setTemplateCacheMaxSize(properties.getParsedCacheSize());
+        this.templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setCacheManager(cacheManager);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+
+        this.render = Timer.builder(METRIC_PREFIX + ".render").register(meterRegistry);
+        this.fragments = new WeightedCache<>(
+            METRIC_PREFIX + ".cache",
+            properties.getFragmentCacheMaxSize(),
+            properties.getFragmentCacheMaxEntries(),
+            String::length,
+            null,
+            null,
+            meterRegistry
+        );
+    }
+
+    /**
+     * Render the HTML body of a notification.
+     *
+     * @param notificationDTO the notification, its message already rendered in the given locale.
+     * @param locale the locale of the texts of the template.
+     * @return the HTML body.
+     */
+    public String renderHtml(NotificationDTO notificationDTO, Locale locale) {
+        String templateName = templateName(notificationDTO.getTemplateKey());
+        Map<String, String> params = notificationDTO.getTemplateParams() == null
+            ? Map.of()
+            : new TreeMap<>(notificationDTO.getTemplateParams());
+        if (!cache) {
+            return process(templateName, notificationDTO, params, locale);
+        }
+        Key key = new Key(templateName, locale.getLanguage(), hash(notificationDTO, params));
+        return fragments.get(key, missing -> process(templateName, notificationDTO, params, locale));
+    }
+
+    public long getEntryCount() {
+        return fragments.getEntryCount();
+    }
+
+    public long getTotalSize() {
+        return fragments.getTotalWeight();
+    }
+
+    private String process(String templateName, NotificationDTO notificationDTO, Map<String, String> params, Locale locale) {
+        Context context = new Context(locale);
+        context.setVariable("message", notificationDTO.getMessage());
+        context.setVariable("templateKey", notificationDTO.getTemplateKey());
+        context.setVariable("params", params);
+        return render.record(() -> templateEngine.process(templateName, context));
+    }
+
+    // L'existence du fichier n'est vérifiée qu'une fois par clé
+    private String templateName(String templateKey) {
+        if (templateKey == null || !TEMPLATE_NAME.matcher(templateKey).matches()) {
+            return DEFAULT_TEMPLATE;
+        }
+        return templateNames.computeIfAbsent(templateKey, key ->
+            new ClassPathResource(TEMPLATE_LOCATION + key + ".html").exists() ? key : DEFAULT_TEMPLATE
+        );
+    }
+
+    // Séparateurs non imprimables : deux modèles différents ne peuvent pas donner la même chaîne
+    private static String hash(NotificationDTO notificationDTO, Map<String, String> params) {
+        StringBuilder model = new StringBuilder()
+            .append(notificationDTO.getTemplateKey())
+            .append('\u0000')
+            .append(notificationDTO.getMessage());
+        params.forEach((name, value) -> model.append('\u0000').append(name).append('\u0001').append(value));
+        return DigestUtils.md5DigestAsHex(model.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Key(String templateName, String language, String hash) {}
+}
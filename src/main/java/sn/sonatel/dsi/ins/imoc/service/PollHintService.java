@@ -0,0 +1,174 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.boot.autoconfigure.task.TaskExecutionProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sn.sonatel.dsi.ins.imoc.config.AdaptiveTaskExecutor;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+import sn.sonatel.dsi.ins.imoc.web.filter.ConcurrencyLimitFilter;
+
+/**
+ * Computes the interval after which a client should poll the unread notifications of a user again, sent in the
+ * {@value #POLL_AFTER_HEADER} header.
+ * <p>
+ * The interval grows from {@code min-interval}, right after a change to the notifications of the user, to
+ * {@code max-interval} once they did not change for {@code idle-ramp}. It is then stretched while the server is loaded,
+ * the load being the highest usage of the connection pools, of the task queue and of the API concurrency limits.
+ * When {@code application.poll-hint.enforced} is set, a poll arriving before {@code early-tolerance} of the last
+ * interval is rejected, unless the notifications of the user changed in the meantime.
+ */
+@Service
+public class PollHintService {
+
+    public static final String POLL_AFTER_HEADER = "X-Poll-After";
+
+    public static final String METRIC_PREFIX = "notification.poll";
+
+    private static final int ACTIVITY_STRIPES = 1024;
+
+    private final ApplicationProperties.PollHint properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int queueCapacity;
+
+    // Date de la dernière modification par groupe d'utilisateurs : une collision ne fait que raccourcir l'intervalle
+    private final AtomicLongArray lastChanges = new AtomicLongArray(ACTIVITY_STRIPES);
+
+    private final AtomicLong lastBroadcast = new AtomicLong();
+
+    private final ConcurrentHashMap<String, Poll> polls = new ConcurrentHashMap<>();
+
+    private final Counter rejected;
+
+    private volatile double load;
+
+    public PollHintService(
+        ApplicationProperties applicationProperties,
+        TaskExecutionProperties taskExecutionProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.properties = applicationProperties.getPollHint();
+        this.meterRegistry = meterRegistry;
+        this.queueCapacity = taskExecutionProperties.getPool().getQueueCapacity();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ACTIVITY_STRIPES; i++) {
+            lastChanges.set(i, now);
+        }
+        this.rejected = Counter.builder(METRIC_PREFIX + ".rejected").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".load", this, service -> service.load).register(meterRegistry);
+    }
+
+    /**
+     * Register a poll of the unread notifications of a user.
+     *
+     * @param operation the polled operation, each one being tracked apart.
+     * @param userLogin the login of the user.
+     * @return the interval to send back, and whether the poll came too early.
+     */
+    public Hint onPoll(String operation, String userLogin) {
+        long now = System.currentTimeMillis();
+        long lastChange = lastChange(userLogin);
+        Duration pollAfter = pollAfter(now - lastChange);
+        if (!properties.isEnforced()) {
+            return new Hint(pollAfter, null);
+        }
+        String key = operation + ':' + userLogin.toLowerCase();
+        Poll previous = polls.get(key);
+        if (previous != null && now < previous.earliest && lastChange <= previous.at) {
+            rejected.increment();
+            return new Hint(pollAfter, Duration.ofMillis(previous.earliest - now));
+        }
+        if (previous == null && polls.size() >= properties.getMaxTracked()) {
+            evictExpired(now);
+        }
+        polls.put(key, new Poll(now, now + (long) (pollAfter.toMillis() * properties.getEarlyTolerance())));
+        return new Hint(pollAfter, null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsChanged(NotificationsChangedEvent event) {
+        long now = System.currentTimeMillis();
+        if (event.isForAllUsers()) {
+            lastBroadcast.set(now);
+        } else {
+            lastChanges.set(stripe(event.userLogin()), now);
+        }
+    }
+
+    // Les jauges sont lues à part : le calcul d'un intervalle ne parcourt pas le registre
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+    public void refreshLoad() {
+        double queued = meterRegistry
+            .find(AdaptiveTaskExecutor.METRIC_PREFIX + ".queued")
+            .gauges()
+            .stream()
+            .mapToDouble(Gauge::value)
+            .sum();
+        load = Math.max(
+            Math.max(usage("hikaricp.connections.active", "hikaricp.connections.max", "pool"), queued / Math.max(queueCapacity, 1)),
+            usage(ConcurrencyLimitFilter.METRIC_PREFIX + ".inflight", ConcurrencyLimitFilter.METRIC_PREFIX + ".limit", "partition")
+        );
+    }
+
+    private Duration pollAfter(long idleMillis) {
+        long min = properties.getMinInterval().toMillis();
+        long max = properties.getMaxInterval().toMillis();
+        double idle = Math.min((double) idleMillis / Math.max(properties.getIdleRamp().toMillis(), 1), 1);
+        double threshold = properties.getLoadThreshold();
+        double overload = threshold < 1 ? Math.min(Math.max((load - threshold) / (1 - threshold), 0), 1) : 0;
+        double factor = 1 + (properties.getMaxLoadFactor() - 1) * overload;
+        return Duration.ofSeconds((long) Math.ceil((min + (max - min) * idle) * factor / 1000));
+    }
+
+    private double usage(String usedGauge, String limitGauge, String tag) {
+        double usage = 0;
+        for (Gauge used : meterRegistry.find(usedGauge).gauges()) {
+            String value = used.getId().getTag(tag);
+            Gauge limit = value == null ? null : meterRegistry.find(limitGauge).tag(tag, value).gauge();
+            if (limit != null && limit.value() > 0) {
+                usage = Math.max(usage, used.value() / limit.value());
+            }
+        }
+        return usage;
+    }
+
+    private void evictExpired(long now) {
+        polls.values().removeIf(poll -> poll.earliest <= now);
+        if (polls.size() >= properties.getMaxTracked()) {
+            polls.clear();
+        }
+    }
+
+    private long lastChange(String userLogin) {
+        return Math.max(lastChanges.get(stripe(userLogin)), lastBroadcast.get());
+    }
+
+    private static int stripe(String userLogin) {
+        return Math.floorMod(userLogin.toLowerCase().hashCode(), ACTIVITY_STRIPES);
+    }
+
+    /**
+     * The answer to a poll.
+     *
+     * @param pollAfter the interval after which the client should poll again.
+     * @param retryAfter when the poll came too early, the time left before a poll is accepted, otherwise {@code null}.
+     */
+    public record Hint(Duration pollAfter, Duration retryAfter) {
+        public boolean isTooEarly() {
+            return retryAfter != null;
+        }
+    }
+
+    private record Poll(long at, long earliest) {}
+}
@@ -0,0 +1,115 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory cache bounded by the total weight of its values, the least recently used entries being evicted first.
+ * <p>
+ * Backed by Caffeine, so that reads do not contend on a lock. When a maximum number of entries is also given, each
+ * entry weighs at least {@code maxWeight / maxEntries}, which bounds both at once.
+ * <p>
+ * Metrics, under the given prefix: {@code requests} tagged by {@code result}, {@code hit.ratio}, {@code entries}
+ * and {@code size}, the total weight.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ */
+public class WeightedCache<K, V> {
+
+    private final Cache<K, V> cache;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    /**
+     * @param metricPrefix the prefix of the metrics.
+     * @param maxWeight the upper bound of the total weight.
+     * @param maxEntries the upper bound of the number of entries, or {@code 0} for none.
+     * @param weigher the weight of a value, in {@code weightUnit}.
+     * @param weightUnit the base unit of the {@code size} metric, may be {@code null}.
+     * @param timeToLive the time after which an entry expires, or {@code null} for none.
+     */
+    public WeightedCache(
+        String metricPrefix,
+        long maxWeight,
+        long maxEntries,
+        ToLongFunction<? super V> weigher,
+        String weightUnit,
+        Duration timeToLive,
+        MeterRegistry meterRegistry
+    ) {
+        long minWeight = maxEntries > 0 ? Math.max(1, maxWeight / maxEntries) : 0;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumWeight(maxWeight)
+            // L'éviction se fait sur le thread appelant, sans passer par le pool commun
+            .executor(Runnable::run);
+        if (timeToLive != null) {
+            builder.expireAfterWrite(timeToLive);
+        }
+        this.cache = builder
+            .<K, V>weigher((key, value) -> (int) Math.min(Math.max(weigher.applyAsLong(value), minWeight), Integer.MAX_VALUE))
+            .build();
+        this.hits = Counter.builder(metricPrefix + ".requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder(metricPrefix + ".requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder(metricPrefix + ".hit.ratio", this, WeightedCache::hitRatio).register(meterRegistry);
+        Gauge.builder(metricPrefix + ".entries", this, WeightedCache::getEntryCount).register(meterRegistry);
+        Gauge.builder(metricPrefix + ".size", this, WeightedCache::getTotalWeight).baseUnit(weightUnit).register(meterRegistry);
+    }
+
+    /**
+     * Get a cached value, counting a hit or a miss.
+     *
+     * @param fresh tells whether the cached value can still be used; a stale value counts as a miss.
+     * @return the value, or {@code null} on a miss.
+     */
+    public V get(K key, Predicate<? super V> fresh) {
+        V value = cache.getIfPresent(key);
+        if (value != null && fresh.test(value)) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Get a cached value, computing and caching it on a miss. Concurrent misses on one key compute it only once.
+     *
+     * @param loader computes the value of a missing key, must not return {@code null}.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = cache.getIfPresent(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        return cache.get(key, loader);
+    }
+
+    public void put(K key, V value) {
+        cache.put(key, value);
+    }
+
+    public long getEntryCount() {
+        return cache.estimatedSize();
+    }
+
+    public long getTotalWeight() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private double hitRatio() {
+        double requests = hits.count() + misses.count();
+        return requests == 0 ? 0 : hits.count() / requests;
+    }
+}
@@ -0,0 +1,16 @@
+package sn.sonatel.dsi.ins.imoc.service.dto;
+
+/**
+ * The audiences a broadcast can be sent to, resolved from the notification table.
+ */
+public enum NotificationBroadcastAudience {
+    /**
+     * Every user who has already received a notification.
+     */
+    ALL_USERS,
+
+    /**
+     * Every user who has already received a notification about the given reservation.
+     */
+    RESERVATION,
+}
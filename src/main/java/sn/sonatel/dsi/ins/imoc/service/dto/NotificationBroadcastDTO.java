@@ -0,0 +1,139 @@
+package sn.sonatel.dsi.ins.imoc.service.dto;
+
+import jakarta.persistence.Lob;
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A DTO for the {@link sn.sonatel.dsi.ins.imoc.domain.NotificationBroadcast} entity.
+ * <p>
+ * The recipients are given either as an explicit list of logins, or as an audience.
+ */
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class NotificationBroadcastDTO implements Serializable {
+
+    public static final int MAX_USER_LOGINS = 100_000;
+
+    private Long id;
+
+    @NotNull
+    @Lob
+    private String message;
+
+    @Size(max = 50)
+    private String kind;
+
+    private Instant createdDate;
+
+    @Size(max = MAX_USER_LOGINS)
+    private List<@NotBlank String> userLogins;
+
+    private NotificationBroadcastAudience audience;
+
+    private Long reservationId;
+
+    private Long recipients;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public List<String> getUserLogins() {
+        return userLogins;
+    }
+
+    public void setUserLogins(List<String> userLogins) {
+        this.userLogins = userLogins;
+    }
+
+    public NotificationBroadcastAudience getAudience() {
+        return audience;
+    }
+
+    public void setAudience(NotificationBroadcastAudience audience) {
+        this.audience = audience;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Long reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public Long getRecipients() {
+        return recipients;
+    }
+
+    public void setRecipients(Long recipients) {
+        this.recipients = recipients;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NotificationBroadcastDTO)) {
+            return false;
+        }
+
+        NotificationBroadcastDTO notificationBroadcastDTO = (NotificationBroadcastDTO) o;
+        if (this.id == null) {
+            return false;
+        }
+        return Objects.equals(this.id, notificationBroadcastDTO.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.id);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "NotificationBroadcastDTO{" +
+            "id=" + getId() +
+            ", message='" + getMessage() + "'" +
+            ", kind='" + getKind() + "'" +
+            ", createdDate='" + getCreatedDate() + "'" +
+            ", userLogins=" + (getUserLogins() == null ? null : getUserLogins().size()) +
+            ", audience='" + getAudience() + "'" +
+            ", reservationId=" + getReservationId() +
+            ", recipients=" + getRecipients() +
+            "}";
+    }
+}
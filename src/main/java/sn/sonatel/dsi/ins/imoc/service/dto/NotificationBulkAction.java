@@ -0,0 +1,11 @@
+package sn.sonatel.dsi.ins.imoc.service.dto;
+
+/**
+ * The state changes that can be applied to a set of notifications at once.
+ */
+public enum NotificationBulkAction {
+    READ,
+    UNREAD,
+    SOFT_DELETE,
+    HARD_DELETE,
+}
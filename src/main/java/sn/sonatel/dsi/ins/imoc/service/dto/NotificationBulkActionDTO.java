@@ -0,0 +1,45 @@
+package sn.sonatel.dsi.ins.imoc.service.dto;
+
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A DTO for a state change applied to several {@link sn.sonatel.dsi.ins.imoc.domain.Notification} of the current user.
+ */
+public class NotificationBulkActionDTO implements Serializable {
+
+    public static final int MAX_IDS = 10_000;
+
+    @NotNull
+    private NotificationBulkAction action;
+
+    @NotEmpty
+    @Size(max = MAX_IDS)
+    private List<@NotNull Long> ids;
+
+    public NotificationBulkAction getAction() {
+        return action;
+    }
+
+    public void setAction(NotificationBulkAction action) {
+        this.action = action;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "NotificationBulkActionDTO{" +
+            "action=" + getAction() +
+            ", ids=" + (getIds() == null ? null : getIds().size()) +
+            "}";
+    }
+}
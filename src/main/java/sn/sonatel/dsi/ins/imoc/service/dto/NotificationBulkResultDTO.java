@@ -0,0 +1,63 @@
+package sn.sonatel.dsi.ins.imoc.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for the outcome of a {@link NotificationBulkActionDTO}.
+ */
+public class NotificationBulkResultDTO implements Serializable {
+
+    private NotificationBulkAction action;
+
+    private int requested;
+
+    private int affected;
+
+    public NotificationBulkResultDTO() {}
+
+    public NotificationBulkResultDTO(NotificationBulkAction action, int requested, int affected) {
+        this.action = action;
+        this.requested = requested;
+        this.affected = affected;
+    }
+
+    public NotificationBulkAction getAction() {
+        return action;
+    }
+
+    public void setAction(NotificationBulkAction action) {
+        this.action = action;
+    }
+
+    /**
+     * @return the number of distinct ids in the request.
+     */
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    /**
+     * @return the number of notifications of the current user changed by the action.
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+    public void setAffected(int affected) {
+        this.affected = affected;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "NotificationBulkResultDTO{" +
+            "action=" + getAction() +
+            ", requested=" + getRequested() +
+            ", affected=" + getAffected() +
+            "}";
+    }
+}
@@ -1,8 +1,11 @@
 package sn.sonatel.dsi.ins.imoc.service.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.Lob;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
+import java.time.Instant;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -27,6 +30,28 @@ public class NotificationDTO implements Serializable {
     @NotNull
     private Boolean read;
 
+    @Size(max = 50)
+    private String kind;
+
+    private Integer occurrences;
+
+    private Boolean broadcast;
+
+    @Size(max = 100)
+    private String templateKey;
+
+    private Map<String, String> templateParams;
+
+    private Instant createdDate;
+
+    // Date de livraison future : la notification reste cachée jusque-là, absente des réponses une fois livrée
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant deliverAt;
+
+    // Envoi aussi par e-mail, quand le canal est activé : l'adresse est celle du compte de userLogin, jamais celle du client
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean sendEmail;
+
     public Long getId() {
         return id;
     }
@@ -75,6 +100,70 @@ public class NotificationDTO implements Serializable {
         this.read = read;
     }
 
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public Integer getOccurrences() {
+        return occurrences;
+    }
+
+    public void setOccurrences(Integer occurrences) {
+        this.occurrences = occurrences;
+    }
+
+    public Boolean getBroadcast() {
+        return broadcast;
+    }
+
+    public void setBroadcast(Boolean broadcast) {
+        this.broadcast = broadcast;
+    }
+
+    public String getTemplateKey() {
+        return templateKey;
+    }
+
+    public void setTemplateKey(String templateKey) {
+        this.templateKey = templateKey;
+    }
+
+    public Map<String, String> getTemplateParams() {
+        return templateParams;
+    }
+
+    public void setTemplateParams(Map<String, String> templateParams) {
+        this.templateParams = templateParams;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getDeliverAt() {
+        return deliverAt;
+    }
+
+    public void setDeliverAt(Instant deliverAt) {
+        this.deliverAt = deliverAt;
+    }
+
+    public Boolean getSendEmail() {
+        return sendEmail;
+    }
+
+    public void setSendEmail(Boolean sendEmail) {
+        this.sendEmail = sendEmail;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -106,6 +195,14 @@ public class NotificationDTO implements Serializable {
             ", userLogin='" + getUserLogin() + "'" +
             ", deleted='" + getDeleted() + "'" +
             ", read='" + getRead() + "'" +
+            ", kind='" + getKind() + "'" +
+            ", occurrences=" + getOccurrences() +
+            ", broadcast='" + getBroadcast() + "'" +
+            ", templateKey='" + getTemplateKey() + "'" +
+            ", templateParams=" + getTemplateParams() +
+            ", createdDate='" + getCreatedDate() + "'" +
+            ", deliverAt='" + getDeliverAt() + "'" +
+            ", sendEmail='" + getSendEmail() + "'" +
             "}";
     }
 }
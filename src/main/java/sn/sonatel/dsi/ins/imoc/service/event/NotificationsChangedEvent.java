@@ -0,0 +1,28 @@
+package sn.sonatel.dsi.ins.imoc.service.event;
+
+/**
+ * Published when the notifications of a user have been created, updated or deleted.
+ * <p>
+ * A {@code null} login means that the change could not be attributed to a single user,
+ * and that every user should be considered changed.
+ *
+ * @param userLogin the login of the user whose notifications changed, or {@code null}.
+ * @param overflowEvicted whether the change is the eviction of the overflow by the {@code NotificationCapService}.
+ */
+public record NotificationsChangedEvent(String userLogin, boolean overflowEvicted) {
+    public static NotificationsChangedEvent forUser(String userLogin) {
+        return new NotificationsChangedEvent(userLogin, false);
+    }
+
+    public static NotificationsChangedEvent forAllUsers() {
+        return new NotificationsChangedEvent(null, false);
+    }
+
+    public static NotificationsChangedEvent overflowEvictedFor(String userLogin) {
+        return new NotificationsChangedEvent(userLogin, true);
+    }
+
+    public boolean isForAllUsers() {
+        return userLogin == null;
+    }
+}
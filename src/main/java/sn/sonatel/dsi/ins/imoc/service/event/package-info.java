@@ -0,0 +1,4 @@
+/**
+ * Application events published by the service layer.
+ */
+package sn.sonatel.dsi.ins.imoc.service.event;
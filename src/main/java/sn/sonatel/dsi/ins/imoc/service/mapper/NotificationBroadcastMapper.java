@@ -0,0 +1,19 @@
+package sn.sonatel.dsi.ins.imoc.service.mapper;
+
+import org.mapstruct.*;
+import sn.sonatel.dsi.ins.imoc.domain.NotificationBroadcast;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationBroadcastDTO;
+
+/**
+ * Mapper for the entity {@link NotificationBroadcast} and its DTO {@link NotificationBroadcastDTO}.
+ */
+@Mapper(componentModel = "spring")
+public interface NotificationBroadcastMapper extends EntityMapper<NotificationBroadcastDTO, NotificationBroadcast> {
+    // Les destinataires ne sont pas portés par l'entité
+    @Override
+    @Mapping(target = "userLogins", ignore = true)
+    @Mapping(target = "audience", ignore = true)
+    @Mapping(target = "reservationId", ignore = true)
+    @Mapping(target = "recipients", ignore = true)
+    NotificationBroadcastDTO toDto(NotificationBroadcast entity);
+}
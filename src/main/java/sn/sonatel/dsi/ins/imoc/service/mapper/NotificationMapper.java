@@ -8,4 +8,33 @@ import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
  * Mapper for the entity {@link Notification} and its DTO {@link NotificationDTO}.
  */
 @Mapper(componentModel = "spring")
-public interface NotificationMapper extends EntityMapper<NotificationDTO, Notification> {}
+public interface NotificationMapper extends EntityMapper<NotificationDTO, Notification> {
+    // Les notifications diffusées ne passent pas par l'entité Notification, ni celles en attente de livraison ;
+    // l'envoi par e-mail n'est pas conservé
+    @Override
+    @Mapping(target = "broadcast", constant = "false")
+    @Mapping(target = "deliverAt", ignore = true)
+    @Mapping(target = "sendEmail", ignore = true)
+    NotificationDTO toDto(Notification entity);
+
+    // Le compteur d'occurrences et la clé de regroupement sont gérés par le service, les champs d'audit par le listener
+    @Override
+    @Mapping(target = "occurrences", ignore = true)
+    @Mapping(target = "coalesceKey", ignore = true)
+    @Mapping(target = "createdBy", ignore = true)
+    @Mapping(target = "createdDate", ignore = true)
+    @Mapping(target = "lastModifiedBy", ignore = true)
+    @Mapping(target = "lastModifiedDate", ignore = true)
+    Notification toEntity(NotificationDTO dto);
+
+    @Override
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "occurrences", ignore = true)
+    @Mapping(target = "coalesceKey", ignore = true)
+    @Mapping(target = "createdBy", ignore = true)
+    @Mapping(target = "createdDate", ignore = true)
+    @Mapping(target = "lastModifiedBy", ignore = true)
+    @Mapping(target = "lastModifiedDate", ignore = true)
+    void partialUpdate(@MappingTarget Notification entity, NotificationDTO dto);
+}
@@ -0,0 +1,155 @@
+package sn.sonatel.dsi.ins.imoc.web.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+
+/**
+ * Sheds the API requests above a concurrency limit that adapts to their latency, so that a slow database does not let
+ * requests pile up in Undertow.
+ * <p>
+ * Requests are split into three partitions, reads, writes and bulk operations, each with its own limit: a slow bulk
+ * operation does not take the place of the {@code /non-lue} polls. Each limit follows an AIMD rule: it grows by one
+ * when a request completes within the max latency of its partition while the partition is at least half used, and is
+ * multiplied by the backoff ratio when a request is slower or fails with a 5xx.
+ * Requests above the limit are answered at once with a 503 and a {@code Retry-After} header.
+ * <p>
+ * Metrics, tagged by partition: {@code api.concurrency.limit}, {@code api.concurrency.inflight} and
+ * {@code api.concurrency.shed}.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    public static final String METRIC_PREFIX = "api.concurrency";
+
+    private static final RequestMatcher BULK_REQUESTS = new OrRequestMatcher(
+        new AntPathRequestMatcher("/api/notifications/bulk", HttpMethod.POST.name()),
+        new AntPathRequestMatcher("/api/notifications/read-all", HttpMethod.PATCH.name()),
+        new AntPathRequestMatcher("/api/notifications/user/**", HttpMethod.DELETE.name()),
+        new AntPathRequestMatcher("/api/notification-broadcasts", HttpMethod.POST.name()),
+        new AntPathRequestMatcher("/api/admin/**")
+    );
+
+    private final Logger log = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private final Partition reads;
+
+    private final Partition writes;
+
+    private final Partition bulk;
+
+    private final String retryAfter;
+
+    public ConcurrencyLimitFilter(ApplicationProperties.ConcurrencyLimit properties, MeterRegistry meterRegistry) {
+        this.reads = new Partition("reads", properties.getReads(), properties.getBackoffRatio(), meterRegistry);
+        this.writes = new Partition("writes", properties.getWrites(), properties.getBackoffRatio(), meterRegistry);
+        this.bulk = new Partition("bulk", properties.getBulk(), properties.getBackoffRatio(), meterRegistry);
+        this.retryAfter = String.valueOf(Math.max(properties.getRetryAfter().toSeconds(), 1));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        Partition partition = partitionOf(request);
+        if (!partition.tryAcquire()) {
+            partition.shed.increment();
+            log.debug("Request {} {} shed at the limit of {}", request.getMethod(), request.getRequestURI(), partition.limit);
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            partition.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    private Partition partitionOf(HttpServletRequest request) {
+        if (BULK_REQUESTS.matches(request)) {
+            return bulk;
+        }
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) ? reads : writes;
+    }
+
+    private static final class Partition {
+
+        private final int minLimit;
+
+        private final int maxLimit;
+
+        private final long maxLatencyNanos;
+
+        private final double backoffRatio;
+
+        private final AtomicInteger inflight = new AtomicInteger();
+
+        private final Counter shed;
+
+        private volatile int limit;
+
+        private Partition(
+            String name,
+            ApplicationProperties.ConcurrencyLimit.Partition properties,
+            double backoffRatio,
+            MeterRegistry meterRegistry
+        ) {
+            this.minLimit = properties.getMinLimit();
+            this.maxLimit = properties.getMaxLimit();
+            this.maxLatencyNanos = properties.getMaxLatency().toNanos();
+            this.backoffRatio = backoffRatio;
+            this.limit = Math.min(Math.max(properties.getInitialLimit(), minLimit), maxLimit);
+            this.shed = Counter.builder(METRIC_PREFIX + ".shed").tag("partition", name).register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + ".limit", this, partition -> partition.limit).tag("partition", name).register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + ".inflight", inflight, AtomicInteger::get).tag("partition", name).register(meterRegistry);
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int current = inflight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inflight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release(long latencyNanos, boolean failed) {
+            int current = inflight.getAndDecrement();
+            synchronized (this) {
+                if (failed || latencyNanos > maxLatencyNanos) {
+                    limit = Math.max((int) (limit * backoffRatio), minLimit);
+                } else if (current * 2 >= limit && limit < maxLimit) {
+                    // Croissance additive seulement quand la limite sert : une partition calme garde sa limite
+                    limit++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package sn.sonatel.dsi.ins.imoc.web.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.security.SecurityUtils;
+
+/**
+ * Limits the rate of the API requests of each user, or of each client IP for the anonymous requests such as
+ * {@code /api/notifications/welcome}. Runs after the {@code JWTFilter}, which sets the current user.
+ * <p>
+ * Behind the gateway, the client IP is the last {@code X-Forwarded-For} entry not appended by one of the
+ * {@code application.rate-limit.trusted-proxies}: the entries a client writes itself are never read.
+ * <p>
+ * Each key has a token bucket kept as a single theoretical arrival time (GCRA), updated with a compare-and-set: no lock
+ * is taken on the request path. The buckets are held in striped maps bounded by {@code application.rate-limit.max-entries};
+ * when a stripe is full, its idle buckets, which hold a full burst again, are dropped first.
+ * <p>
+ * Every response carries the {@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining} and {@code X-RateLimit-Reset}
+ * headers; the rejected requests get a 429 with a {@code Retry-After} header.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String METRIC_PREFIX = "api.rate.limit";
+
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    private static final int STRIPES = 64;
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final Policy user;
+
+    private final Policy anonymous;
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes = new ConcurrentHashMap[STRIPES];
+
+    private final int maxEntriesPerStripe;
+
+    private final Pattern trustedProxies;
+
+    public RateLimitFilter(ApplicationProperties.RateLimit properties, MeterRegistry meterRegistry) {
+        this.user = new Policy("user", properties.getUser(), meterRegistry);
+        this.anonymous = new Policy("anonymous", properties.getAnonymous(), meterRegistry);
+        this.maxEntriesPerStripe = Math.max(properties.getMaxEntries() / STRIPES, 1);
+        this.trustedProxies = Pattern.compile(Optional.ofNullable(properties.getTrustedProxies()).orElse(""));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        Gauge.builder(METRIC_PREFIX + ".entries", this, RateLimitFilter::getEntryCount).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        Policy policy = login.isPresent() ? user : anonymous;
+        // Préfixes distincts : un login ne peut pas partager le seau d'une adresse IP
+        String key = login.map(value -> "u:" + value.toLowerCase()).orElseGet(() -> "a:" + clientAddress(request));
+        long now = System.nanoTime();
+        long used = policy.acquire(bucket(key, now), now);
+        response.setHeader(LIMIT_HEADER, policy.burstHeader);
+        if (used < 0) {
+            policy.rejected.increment();
+            response.setHeader(REMAINING_HEADER, "0");
+            response.setHeader(RESET_HEADER, seconds(policy.capacity));
+            response.setHeader(HttpHeaders.RETRY_AFTER, seconds(-used));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+        response.setHeader(REMAINING_HEADER, String.valueOf((policy.capacity - used) / policy.interval));
+        response.setHeader(RESET_HEADER, seconds(used));
+        filterChain.doFilter(request, response);
+    }
+
+    public int getEntryCount() {
+        int count = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    /**
+     * Resolve the address of the client: the forwarded entries are read from the right, each one vouched for by the
+     * trusted proxy that appended it, up to the first address that is not a trusted proxy.
+     */
+    String clientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!isTrustedProxy(address)) {
+            return address;
+        }
+        // Plusieurs en-têtes se lisent comme une seule liste, dans l'ordre où ils ont été ajoutés
+        List<String> forwarded = new ArrayList<>();
+        for (String header : Collections.list(request.getHeaders(FORWARDED_FOR_HEADER))) {
+            for (String entry : header.split(",")) {
+                if (!entry.isBlank()) {
+                    forwarded.add(entry.strip());
+                }
+            }
+        }
+        for (int i = forwarded.size() - 1; i >= 0 && isTrustedProxy(address); i--) {
+            address = forwarded.get(i);
+        }
+        return address;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        return address != null && trustedProxies.matcher(address).matches();
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        AtomicLong bucket = stripe.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.size() >= maxEntriesPerStripe) {
+            evict(stripe, now);
+        }
+        return stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    // Un seau dont l'heure théorique est passée est plein : le retirer ne change rien pour son client
+    private void evict(ConcurrentHashMap<String, AtomicLong> stripe, long now) {
+        stripe.values().removeIf(bucket -> bucket.get() - now <= 0);
+        Iterator<AtomicLong> buckets = stripe.values().iterator();
+        while (stripe.size() >= maxEntriesPerStripe && buckets.hasNext()) {
+            buckets.next();
+            buckets.remove();
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf((nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static final class Policy {
+
+        private final long interval;
+
+        private final long capacity;
+
+        private final String burstHeader;
+
+        private final Counter rejected;
+
+        private Policy(String name, ApplicationProperties.RateLimit.Policy properties, MeterRegistry meterRegistry) {
+            this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRate());
+            this.capacity = interval * properties.getBurst();
+            this.burstHeader = String.valueOf(properties.getBurst());
+            this.rejected = Counter.builder(METRIC_PREFIX + ".rejected").tag("policy", name).register(meterRegistry);
+        }
+
+        /**
+         * Take a token from a bucket.
+         *
+         * @return the time needed for the bucket to be full again, or minus the time to wait when it is empty.
+         */
+        private long acquire(AtomicLong bucket, long now) {
+            while (true) {
+                long arrival = bucket.get();
+                long next = Math.max(arrival - now, 0) + interval;
+                if (next > capacity) {
+                    return capacity - next;
+                }
+                if (bucket.compareAndSet(arrival, now + next)) {
+                    return next;
+                }
+            }
+        }
+    }
+}
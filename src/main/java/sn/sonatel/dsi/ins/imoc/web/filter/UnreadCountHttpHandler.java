@@ -0,0 +1,101 @@
+package sn.sonatel.dsi.ins.imoc.web.filter;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import java.util.Deque;
+import java.util.function.Supplier;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.util.function.SingletonSupplier;
+import sn.sonatel.dsi.ins.imoc.security.jwt.JWTFilter;
+import sn.sonatel.dsi.ins.imoc.security.jwt.TokenProvider;
+import sn.sonatel.dsi.ins.imoc.service.NotificationService;
+import sn.sonatel.dsi.ins.imoc.service.PollHintService;
+
+/**
+ * Undertow handler answering {@code GET /api/notifications/non-lue} without going through the servlet filters,
+ * Spring Security and Spring MVC.
+ * <p>
+ * Only the plain case is handled here: a valid bearer token, the {@code userLogin} parameter and no {@code Origin}
+ * header. Any other request, including the ones that would be refused, goes on to the servlet stack, which answers it
+ * as before. The answer is the same as {@code NotificationResource}'s, poll hint included.
+ * <p>
+ * The handler is built with the Undertow deployment, before the application context is ready: the services are looked
+ * up on the first request.
+ */
+public class UnreadCountHttpHandler implements HttpHandler {
+
+    public static final String PATH = "/api/notifications/non-lue";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final HttpString POLL_AFTER = new HttpString(PollHintService.POLL_AFTER_HEADER);
+
+    private final HttpHandler next;
+
+    private final Supplier<TokenProvider> tokenProvider;
+
+    private final Supplier<NotificationService> notificationService;
+
+    private final Supplier<PollHintService> pollHintService;
+
+    public UnreadCountHttpHandler(
+        HttpHandler next,
+        Supplier<TokenProvider> tokenProvider,
+        Supplier<NotificationService> notificationService,
+        Supplier<PollHintService> pollHintService
+    ) {
+        this.next = next;
+        this.tokenProvider = SingletonSupplier.of(tokenProvider);
+        this.notificationService = SingletonSupplier.of(notificationService);
+        this.pollHintService = SingletonSupplier.of(pollHintService);
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        if (!Methods.GET.equals(exchange.getRequestMethod()) || !PATH.equals(exchange.getRelativePath())) {
+            next.handleRequest(exchange);
+            return;
+        }
+        // Les requêtes CORS passent par le filtre de WebConfigurer
+        String authorization = exchange.getRequestHeaders().getFirst(JWTFilter.AUTHORIZATION_HEADER);
+        Deque<String> userLogin = exchange.getQueryParameters().get("userLogin");
+        if (
+            exchange.getRequestHeaders().contains(Headers.ORIGIN) ||
+            authorization == null ||
+            !authorization.startsWith(BEARER_PREFIX) ||
+            userLogin == null ||
+            !StringUtils.hasText(userLogin.getFirst())
+        ) {
+            next.handleRequest(exchange);
+            return;
+        }
+        if (exchange.isInIoThread()) {
+            // La lecture du compteur est bloquante : elle quitte le thread d'entrée-sortie
+            exchange.dispatch(this);
+            return;
+        }
+        String jwt = authorization.substring(BEARER_PREFIX.length());
+        if (!tokenProvider.get().validateToken(jwt)) {
+            next.handleRequest(exchange);
+            return;
+        }
+        // Comme dans NotificationResource, le rythme est suivi pour le titulaire du jeton, pas pour le paramètre
+        String caller = tokenProvider.get().getAuthentication(jwt).getName();
+        PollHintService.Hint hint = pollHintService.get().onPoll("non-lue", caller);
+        exchange.getResponseHeaders().put(POLL_AFTER, hint.pollAfter().toSeconds());
+        if (hint.isTooEarly()) {
+            exchange.getResponseHeaders().put(Headers.RETRY_AFTER, Math.max(hint.retryAfter().toSeconds(), 1));
+            exchange.setStatusCode(StatusCodes.TOO_MANY_REQUESTS);
+            exchange.endExchange();
+            return;
+        }
+        Long count = notificationService.get().countNotifications(userLogin.getFirst());
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        exchange.getResponseSender().send(String.valueOf(count));
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Request chain filters.
+ */
+package sn.sonatel.dsi.ins.imoc.web.filter;
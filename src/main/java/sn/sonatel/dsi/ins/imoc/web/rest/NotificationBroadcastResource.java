@@ -0,0 +1,103 @@
+package sn.sonatel.dsi.ins.imoc.web.rest;
+
+import jakarta.validation.Valid;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import sn.sonatel.dsi.ins.imoc.security.AuthoritiesConstants;
+import sn.sonatel.dsi.ins.imoc.service.NotificationBroadcastService;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationBroadcastAudience;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationBroadcastDTO;
+import sn.sonatel.dsi.ins.imoc.web.rest.errors.BadRequestAlertException;
+import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller for managing {@link sn.sonatel.dsi.ins.imoc.domain.NotificationBroadcast}.
+ */
+@RestController
+@RequestMapping("/api/notification-broadcasts")
+public class NotificationBroadcastResource {
+
+    private final Logger log = LoggerFactory.getLogger(NotificationBroadcastResource.class);
+
+    private static final String ENTITY_NAME = "bookyoonnotificationserviceNotificationBroadcast";
+
+    @Value("${jhipster.clientApp.name}")
+    private String applicationName;
+
+    private final NotificationBroadcastService notificationBroadcastService;
+
+    public NotificationBroadcastResource(NotificationBroadcastService notificationBroadcastService) {
+        this.notificationBroadcastService = notificationBroadcastService;
+    }
+
+    /**
+     * {@code POST  /notification-broadcasts} : Create a new broadcast and fan it out to its recipients.
+     *
+     * @param notificationBroadcastDTO the notificationBroadcastDTO to create.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new notificationBroadcastDTO,
+     * or with status {@code 400 (Bad Request)} if the broadcast has already an ID or has no recipients.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<NotificationBroadcastDTO> createNotificationBroadcast(
+        @Valid @RequestBody NotificationBroadcastDTO notificationBroadcastDTO
+    ) throws URISyntaxException {
+        log.debug("REST request to save NotificationBroadcast : {}", notificationBroadcastDTO);
+        if (notificationBroadcastDTO.getId() != null) {
+            throw new BadRequestAlertException("A new notificationBroadcast cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+        boolean hasUserLogins = notificationBroadcastDTO.getUserLogins() != null && !notificationBroadcastDTO.getUserLogins().isEmpty();
+        if (hasUserLogins == (notificationBroadcastDTO.getAudience() != null)) {
+            throw new BadRequestAlertException("Either userLogins or audience must be set", ENTITY_NAME, "recipientsinvalid");
+        }
+        if (
+            notificationBroadcastDTO.getAudience() == NotificationBroadcastAudience.RESERVATION &&
+            notificationBroadcastDTO.getReservationId() == null
+        ) {
+            throw new BadRequestAlertException("The reservation audience needs a reservationId", ENTITY_NAME, "reservationidnull");
+        }
+        notificationBroadcastDTO = notificationBroadcastService.save(notificationBroadcastDTO);
+        return ResponseEntity.created(new URI("/api/notification-broadcasts/" + notificationBroadcastDTO.getId()))
+            .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, notificationBroadcastDTO.getId().toString()))
+            .body(notificationBroadcastDTO);
+    }
+
+    /**
+     * {@code GET  /notification-broadcasts/:id} : get the "id" broadcast.
+     *
+     * @param id the id of the notificationBroadcastDTO to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the notificationBroadcastDTO, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<NotificationBroadcastDTO> getNotificationBroadcast(@PathVariable("id") Long id) {
+        log.debug("REST request to get NotificationBroadcast : {}", id);
+        Optional<NotificationBroadcastDTO> notificationBroadcastDTO = notificationBroadcastService.findOne(id);
+        return ResponseUtil.wrapOrNotFound(notificationBroadcastDTO);
+    }
+
+    /**
+     * {@code DELETE  /notification-broadcasts/:id} : delete the "id" broadcast, for all its recipients.
+     *
+     * @param id the id of the notificationBroadcastDTO to delete.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Void> deleteNotificationBroadcast(@PathVariable("id") Long id) {
+        log.debug("REST request to delete NotificationBroadcast : {}", id);
+        notificationBroadcastService.delete(id);
+        return ResponseEntity.noContent()
+            .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
+            .build();
+    }
+}
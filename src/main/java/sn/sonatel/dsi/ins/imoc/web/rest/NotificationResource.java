@@ -1,26 +1,42 @@
 package sn.sonatel.dsi.ins.imoc.web.rest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
 import sn.sonatel.dsi.ins.imoc.domain.Notification;
-import sn.sonatel.dsi.ins.imoc.repository.NotificationRepository;
+import sn.sonatel.dsi.ins.imoc.security.SecurityUtils;
+import sn.sonatel.dsi.ins.imoc.service.DeferredNotificationService;
+import sn.sonatel.dsi.ins.imoc.service.NotificationPayloadCache;
 import sn.sonatel.dsi.ins.imoc.service.NotificationQueryService;
 import sn.sonatel.dsi.ins.imoc.service.NotificationService;
+import sn.sonatel.dsi.ins.imoc.service.NotificationTemplateRenderer;
+import sn.sonatel.dsi.ins.imoc.service.PollHintService;
 import sn.sonatel.dsi.ins.imoc.service.criteria.NotificationCriteria;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationBulkActionDTO;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationBulkResultDTO;
 import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
 import sn.sonatel.dsi.ins.imoc.web.rest.errors.BadRequestAlertException;
 import tech.jhipster.web.util.HeaderUtil;
@@ -43,18 +59,34 @@ public class NotificationResource {
 
     private final NotificationService notificationService;
 
-    private final NotificationRepository notificationRepository;
-
     private final NotificationQueryService notificationQueryService;
 
+    private final ApplicationProperties applicationProperties;
+
+    private final NotificationPayloadCache notificationPayloadCache;
+
+    private final PollHintService pollHintService;
+
+    private final DeferredNotificationService deferredNotificationService;
+
+    private final NotificationTemplateRenderer notificationTemplateRenderer;
+
     public NotificationResource(
         NotificationService notificationService,
-        NotificationRepository notificationRepository,
-        NotificationQueryService notificationQueryService
+        NotificationQueryService notificationQueryService,
+        ApplicationProperties applicationProperties,
+        NotificationPayloadCache notificationPayloadCache,
+        PollHintService pollHintService,
+        DeferredNotificationService deferredNotificationService,
+        NotificationTemplateRenderer notificationTemplateRenderer
     ) {
         this.notificationService = notificationService;
-        this.notificationRepository = notificationRepository;
         this.notificationQueryService = notificationQueryService;
+        this.applicationProperties = applicationProperties;
+        this.notificationPayloadCache = notificationPayloadCache;
+        this.pollHintService = pollHintService;
+        this.deferredNotificationService = deferredNotificationService;
+        this.notificationTemplateRenderer = notificationTemplateRenderer;
     }
 
     /**
@@ -62,6 +94,7 @@ public class NotificationResource {
      *
      * @param notificationDTO the notificationDTO to create.
      * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new notificationDTO, or with status {@code 400 (Bad Request)} if the notification has already an ID.
+     * With a future {@code deliverAt}, the status is {@code 202 (Accepted)}: the notification is created at that date.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("")
@@ -71,6 +104,12 @@ public class NotificationResource {
         if (notificationDTO.getId() != null) {
             throw new BadRequestAlertException("A new notification cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        if (notificationDTO.getMessage() == null && notificationDTO.getTemplateKey() == null) {
+            throw new BadRequestAlertException("A notification needs a message or a template", ENTITY_NAME, "messagenull");
+        }
+        if (notificationDTO.getDeliverAt() != null && notificationDTO.getDeliverAt().isAfter(Instant.now())) {
+            return ResponseEntity.accepted().body(deferredNotificationService.schedule(notificationDTO));
+        }
         notificationDTO = notificationService.save(notificationDTO);
         return ResponseEntity.created(new URI("/api/notifications/" + notificationDTO.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, notificationDTO.getId().toString()))
@@ -84,6 +123,7 @@ public class NotificationResource {
      * @param notificationDTO the notificationDTO to update.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated notificationDTO,
      * or with status {@code 400 (Bad Request)} if the notificationDTO is not valid,
+     * or with status {@code 404 (Not Found)} if the notificationDTO is not found,
      * or with status {@code 500 (Internal Server Error)} if the notificationDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
@@ -100,14 +140,12 @@ public class NotificationResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!notificationRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
+        Optional<NotificationDTO> result = notificationService.update(notificationDTO);
 
-        notificationDTO = notificationService.update(notificationDTO);
-        return ResponseEntity.ok()
-            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, notificationDTO.getId().toString()))
-            .body(notificationDTO);
+        return ResponseUtil.wrapOrNotFound(
+            result,
+            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, notificationDTO.getId().toString())
+        );
     }
 
     /**
@@ -121,7 +159,10 @@ public class NotificationResource {
      * or with status {@code 500 (Internal Server Error)} if the notificationDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
-    @PatchMapping(value = "/{id}", consumes = { "application/json", "application/merge-patch+json" })
+    @PatchMapping(
+        value = "/{id}",
+        consumes = { "application/json", "application/merge-patch+json", "application/cbor", "application/x-jackson-smile" }
+    )
     public ResponseEntity<NotificationDTO> partialUpdateNotification(
         @PathVariable(value = "id", required = false) final Long id,
         @NotNull @RequestBody NotificationDTO notificationDTO
@@ -134,10 +175,6 @@ public class NotificationResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!notificationRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
-
         Optional<NotificationDTO> result = notificationService.partialUpdate(notificationDTO);
 
         return ResponseUtil.wrapOrNotFound(
@@ -190,6 +227,20 @@ public class NotificationResource {
         return ResponseUtil.wrapOrNotFound(notificationDTO);
     }
 
+    /**
+     * {@code GET  /notifications/:id/preview} : get the HTML body of the "id" notification, as sent by e-mail.
+     *
+     * @param id the id of the notification to preview.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the HTML page, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping(value = "/{id}/preview", produces = MediaType.TEXT_HTML_VALUE)
+    public ResponseEntity<String> previewNotification(@PathVariable("id") Long id) {
+        log.debug("REST request to preview Notification : {}", id);
+        return ResponseUtil.wrapOrNotFound(
+            notificationService.findOne(id).map(dto -> notificationTemplateRenderer.renderHtml(dto, LocaleContextHolder.getLocale()))
+        );
+    }
+
     /**
      * {@code DELETE  /notifications/:id} : delete the "id" notification.
      *
@@ -207,21 +258,52 @@ public class NotificationResource {
 
     @PostMapping("/welcome")
     public ResponseEntity<Void> welcomeNotification(@RequestBody NotificationDTO notificationDTO) {
+        if (notificationDTO.getUserLogin() == null) {
+            throw new BadRequestAlertException("A welcome notification needs a userLogin", ENTITY_NAME, "userloginnull");
+        }
         notificationService.welcomeNotification(notificationDTO);
         log.debug("Received NotificationDTO: {}", notificationDTO);
         return ResponseEntity.ok().build();
     }
 
     // Récupére l'historique des Notifications
+    // Avec includeArchived, les notifications déplacées dans l'archive sont incluses
     @GetMapping("/history")
-    public ResponseEntity<List<NotificationDTO>> getNotificatonsHistory() {
-        List<NotificationDTO> notifications = notificationService.getNotificationsHistory();
+    public ResponseEntity<List<NotificationDTO>> getNotificatonsHistory(
+        @RequestParam(name = "includeArchived", defaultValue = "false") boolean includeArchived,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        if (applicationProperties.getResponseCache().isEnabled() && !acceptsBinary(request)) {
+            writeCachedPayload(
+                includeArchived ? "history-archived" : "history",
+                () -> notificationService.getNotificationsHistory(includeArchived),
+                request,
+                response
+            );
+            return null;
+        }
+        List<NotificationDTO> notifications = notificationService.getNotificationsHistory(includeArchived);
         return ResponseEntity.ok(notifications);
     }
 
     // Récupére l'historique des Notifications
+    // Avec application.history.streaming-json, la réponse est écrite directement depuis le ResultSet
     @GetMapping("/history/non-lue")
-    public ResponseEntity<List<NotificationDTO>> getNonLueNotificationsHistory() {
+    public ResponseEntity<List<NotificationDTO>> getNonLueNotificationsHistory(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        if (!applyPollHint("history-non-lue", SecurityUtils.getCurrentUserLogin().orElseThrow(), response)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        if (applicationProperties.getResponseCache().isEnabled() && !acceptsBinary(request)) {
+            writeCachedPayload("history-non-lue", notificationService::getNonLueNotificationsHistory, request, response);
+            return null;
+        }
+        if (applicationProperties.getHistory().isStreamingJson() && !acceptsBinary(request)) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            notificationService.writeNonLueNotificationsHistory(response.getOutputStream());
+            return null;
+        }
         List<NotificationDTO> nonlueNotifications = notificationService.getNonLueNotificationsHistory();
         return ResponseEntity.ok(nonlueNotifications);
     }
@@ -229,10 +311,25 @@ public class NotificationResource {
     //Marque notification comme lue
     @PatchMapping("/{id}/read")
     public ResponseEntity<Void> marqueNotificationLue(@PathVariable Long id) {
-        notificationService.marquerLue(id);
+        if (!notificationService.marquerLue(id)) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * {@code POST  /notifications/bulk} : apply a state change to several notifications of the current user.
+     *
+     * @param bulkActionDTO the action and the ids of the notifications.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the number of requested and affected notifications,
+     * or with status {@code 400 (Bad Request)} if the bulkActionDTO is not valid.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<NotificationBulkResultDTO> bulkNotifications(@Valid @RequestBody NotificationBulkActionDTO bulkActionDTO) {
+        log.debug("REST request to apply bulk action : {}", bulkActionDTO);
+        return ResponseEntity.ok(notificationService.bulk(bulkActionDTO));
+    }
+
     //Marque tous les notifications comme lue
     @PatchMapping("/read-all")
     public ResponseEntity<Void> maqueToutNotificationsLue() {
@@ -261,8 +358,71 @@ public class NotificationResource {
 
     //Notifications non lue
     @GetMapping("/non-lue")
-    public ResponseEntity<Long> getNotificationsCountNonLue(@RequestParam String userLogin) {
+    public ResponseEntity<Long> getNotificationsCountNonLue(@RequestParam String userLogin, HttpServletResponse response) {
+        // Le rythme est suivi pour l'appelant authentifié : le paramètre ne permet pas de le décaler pour un autre
+        if (!applyPollHint("non-lue", SecurityUtils.getCurrentUserLogin().orElseThrow(), response)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
         Long count = notificationService.countNotifications(userLogin);
         return ResponseEntity.ok(count);
     }
+
+    // Indique au client quand revenir ; false quand la requête arrive trop tôt et doit être refusée
+    private boolean applyPollHint(String operation, String userLogin, HttpServletResponse response) {
+        PollHintService.Hint hint = pollHintService.onPoll(operation, userLogin);
+        response.setHeader(PollHintService.POLL_AFTER_HEADER, String.valueOf(hint.pollAfter().toSeconds()));
+        if (hint.isTooEarly()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(hint.retryAfter().toSeconds(), 1)));
+            return false;
+        }
+        return true;
+    }
+
+    // Écrit le corps JSON mis en cache, déjà compressé quand le client accepte gzip, ou un 304 quand le client l'a déjà
+    private void writeCachedPayload(String operation, Supplier<?> loader, HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        String login = SecurityUtils.getCurrentUserLogin().orElseThrow();
+        NotificationPayloadCache.Payload payload = notificationPayloadCache.getOrLoad(
+            operation,
+            login,
+            LocaleContextHolder.getLocale(),
+            loader
+        );
+        byte[] body = payload.json();
+        String etag = payload.etag();
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+        if (payload.gzip() != null && acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = payload.gzip();
+            // Un ETag fort par représentation
+            etag = etag + "-gzip";
+        }
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // Les chemins rapides n'écrivent que du JSON : CBOR et Smile passent par les convertisseurs
+    private static boolean acceptsBinary(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && (accept.contains("application/cbor") || accept.contains("application/x-jackson-smile"));
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,42 @@
+package sn.sonatel.dsi.ins.imoc.web.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import sn.sonatel.dsi.ins.imoc.security.AuthoritiesConstants;
+import sn.sonatel.dsi.ins.imoc.service.BulkTaskRunner;
+import sn.sonatel.dsi.ins.imoc.service.NotificationShardRebalanceService;
+
+/**
+ * REST controller for the maintenance of the notification shards.
+ */
+@RestController
+@RequestMapping("/api/admin/notification-shards")
+public class NotificationShardResource {
+
+    private final Logger log = LoggerFactory.getLogger(NotificationShardResource.class);
+
+    private final NotificationShardRebalanceService notificationShardRebalanceService;
+
+    private final BulkTaskRunner bulkTaskRunner;
+
+    public NotificationShardResource(NotificationShardRebalanceService notificationShardRebalanceService, BulkTaskRunner bulkTaskRunner) {
+        this.notificationShardRebalanceService = notificationShardRebalanceService;
+        this.bulkTaskRunner = bulkTaskRunner;
+    }
+
+    /**
+     * {@code POST  /admin/notification-shards/rebalance} : move the notifications of each user to its shard.
+     * The move runs on the task executor, behind the other tasks, and the request waits for it.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the number of moved users in body.
+     */
+    @PostMapping("/rebalance")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Long> rebalance() {
+        log.debug("REST request to rebalance the notification shards");
+        return ResponseEntity.ok(bulkTaskRunner.call(notificationShardRebalanceService::rebalance));
+    }
+}
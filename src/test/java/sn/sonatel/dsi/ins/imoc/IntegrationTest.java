@@ -0,0 +1,19 @@
+package sn.sonatel.dsi.ins.imoc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.boot.test.context.SpringBootTest;
+import sn.sonatel.dsi.ins.imoc.config.EmbeddedSQL;
+import sn.sonatel.dsi.ins.imoc.config.JacksonConfiguration;
+
+/**
+ * Base composite annotation for integration tests.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(classes = { BookyoonnotificationserviceApp.class, JacksonConfiguration.class })
+@EmbeddedSQL
+public @interface IntegrationTest {
+}
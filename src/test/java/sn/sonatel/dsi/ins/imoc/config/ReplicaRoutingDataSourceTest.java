@@ -0,0 +1,155 @@
+package sn.sonatel.dsi.ins.imoc.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Test class for the {@link ReplicaRoutingDataSource}.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final String USER = "replica-user";
+
+    private static final String OTHER_USER = "replica-other";
+
+    private Connection primaryConnection;
+
+    private Connection replicaConnection;
+
+    private DataSource primary;
+
+    private DataSource replica;
+
+    private ReplicaLagMonitor lagMonitor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        primary = mockDataSource(primaryConnection);
+        replica = mockDataSource(replicaConnection);
+        lagMonitor = mock(ReplicaLagMonitor.class);
+        when(lagMonitor.isReplicaUsable()).thenReturn(true);
+        authenticate(USER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void writesGoToThePrimary() throws SQLException {
+        assertThat(connection(routing(Duration.ofMinutes(1)), false)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() throws SQLException {
+        assertThat(connection(routing(Duration.ofMinutes(1)), true)).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void readsGoToThePrimaryWhenTheReplicaIsNotUsable() throws SQLException {
+        when(lagMonitor.isReplicaUsable()).thenReturn(false);
+
+        assertThat(connection(routing(Duration.ofMinutes(1)), true)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void aUserReadsItsOwnWritesFromThePrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = routing(Duration.ofMinutes(1));
+
+        // Le login de l'événement et celui de la requête sont comparés sans tenir compte de la casse
+        routing.onNotificationsChanged(NotificationsChangedEvent.forUser(USER.toUpperCase()));
+
+        assertThat(connection(routing, true)).isSameAs(primaryConnection);
+        authenticate(OTHER_USER);
+        assertThat(connection(routing, true)).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void aChangeForAllUsersSendsEveryReadToThePrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = routing(Duration.ofMinutes(1));
+
+        routing.onNotificationsChanged(NotificationsChangedEvent.forAllUsers());
+
+        assertThat(connection(routing, true)).isSameAs(primaryConnection);
+        authenticate(OTHER_USER);
+        assertThat(connection(routing, true)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readsGoBackToTheReplicaOnceTheStickinessIsOver() throws SQLException {
+        ReplicaRoutingDataSource routing = routing(Duration.ZERO);
+
+        routing.onNotificationsChanged(NotificationsChangedEvent.forUser(USER));
+
+        assertThat(connection(routing, true)).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void theLazyProxyRoutesOnTheReadOnlyFlagOfTheTransaction() throws SQLException {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing(Duration.ofMinutes(1)));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(true);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                DataSourceUtils.getConnection(dataSource).createStatement();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        verify(replicaConnection).createStatement();
+        verify(primaryConnection, never()).createStatement();
+    }
+
+    private ReplicaRoutingDataSource routing(Duration stickiness) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+            primary,
+            replica,
+            lagMonitor,
+            stickiness,
+            new SimpleMeterRegistry()
+        );
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private static Connection connection(ReplicaRoutingDataSource routing, boolean readOnly) throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        return routing.getConnection();
+    }
+
+    private static DataSource mockDataSource(Connection connection) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    private static void authenticate(String login) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(login, login));
+    }
+}
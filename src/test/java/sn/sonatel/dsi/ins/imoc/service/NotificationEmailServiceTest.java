@@ -0,0 +1,313 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.MessageSource;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.PlatformTransactionManager;
+import sn.sonatel.dsi.ins.imoc.client.UserServiceClient;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.management.SecurityMetersService;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationEmailJdbcRepository;
+import sn.sonatel.dsi.ins.imoc.security.AuthoritiesConstants;
+import sn.sonatel.dsi.ins.imoc.security.jwt.TokenProvider;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Test class for the {@link NotificationEmailService}, sending to an in-process SMTP server and reading the addresses
+ * from a user service that checks the token of each call.
+ */
+class NotificationEmailServiceTest {
+
+    private static final String SECRET =
+        "YTE5MTA3ZjFkMjVmMmVmYjg3ZjM3MjcxM2U5YjI4NDI2MGU0NjdiNzQ2ZjM2ODAyZjgzZTljMzJkZjhhYTRmYTlmMTI5MWQ4ZmQzNWUwN2JkMjgw" +
+        "MDA4OTA2MmU3MTk5OGEzMTVlMDlhN2IyYTk5NGRiODY3M2MzZWY1YWU0ZjQ=";
+
+    private SmtpStandIn smtp;
+
+    private NotificationEmailJdbcRepository repository;
+
+    private UserService userService;
+
+    private NotificationEmailService notificationEmailService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new SmtpStandIn();
+        repository = mock(NotificationEmailJdbcRepository.class);
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getEmail().setEnabled(true);
+        applicationProperties.getEmail().setConcurrency(1);
+        applicationProperties.getEmail().setMessagesPerSession(2);
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getMail().setFrom("notifications@example.com");
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(SECRET);
+        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, new SecurityMetersService(new SimpleMeterRegistry()));
+        userService = new UserService(
+            tokenProvider,
+            Map.of("first", "first@example.com", "second", "second@example.com", "third", "third@example.com")
+        );
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.getPort());
+        @SuppressWarnings("unchecked")
+        ObjectProvider<JavaMailSender> mailSenderProvider = mock(ObjectProvider.class);
+        when(mailSenderProvider.getIfAvailable()).thenReturn(mailSender);
+
+        NotificationShardService notificationShardService = mock(NotificationShardService.class);
+        doAnswer(invocation -> {
+            invocation.<IntConsumer>getArgument(0).accept(0);
+            return null;
+        })
+            .when(notificationShardService)
+            .forEachShard(any());
+
+        notificationEmailService = new NotificationEmailService(
+            repository,
+            mailSenderProvider,
+            userService,
+            tokenProvider,
+            jHipsterProperties,
+            mock(MessageSource.class),
+            mock(NotificationTemplateRenderer.class),
+            notificationShardService,
+            applicationProperties,
+            mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry()
+        );
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        notificationEmailService.shutdown();
+        smtp.close();
+    }
+
+    @Test
+    void theOutboxKeepsTheLoginNeverAnAddress() {
+        NotificationDTO notificationDTO = new NotificationDTO();
+        notificationDTO.setId(1L);
+        notificationDTO.setUserLogin("first");
+
+        notificationEmailService.enqueue(notificationDTO, true);
+
+        verify(repository).insert(eq(1L), eq("first"), any(), any(), any());
+    }
+
+    @Test
+    void nothingIsQueuedWithoutTheFlag() {
+        NotificationDTO notificationDTO = new NotificationDTO();
+        notificationDTO.setUserLogin("first");
+
+        notificationEmailService.enqueue(notificationDTO, false);
+
+        verify(repository, never()).insert(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void theDueEmailsAreSentToTheAddressesOfTheAccountsThenDeleted() {
+        when(repository.lockDue(any(), anyInt())).thenReturn(List.of(email(1, "first"), email(2, "second"), email(3, "third")));
+
+        notificationEmailService.dispatch();
+
+        assertThat(smtp.recipients).containsExactlyInAnyOrder("first@example.com", "second@example.com", "third@example.com");
+        // Deux messages par session SMTP, un appel au service des utilisateurs par destinataire
+        assertThat(smtp.sessions).hasValue(2);
+        assertThat(userService.calls).hasValue(3);
+        assertThat(smtp.messages).allSatisfy(message -> assertThat(message).contains("Subject: Notification"));
+        verify(repository).deleteByIdIn(List.of(1L, 2L, 3L));
+        verify(repository, never()).markFailed(anyLong(), anyInt(), any(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void theAddressOfARecipientIsReadOncePerBatch() {
+        when(repository.lockDue(any(), anyInt())).thenReturn(List.of(email(1, "first"), email(2, "FIRST")));
+
+        notificationEmailService.dispatch();
+
+        assertThat(smtp.recipients).containsExactly("first@example.com", "first@example.com");
+        assertThat(userService.calls).hasValue(1);
+    }
+
+    @Test
+    void anUnreadableAccountIsRetriedAndTheOthersAreSent() {
+        when(repository.lockDue(any(), anyInt())).thenReturn(List.of(email(1, "unknown"), email(2, "second")));
+
+        notificationEmailService.dispatch();
+
+        assertThat(smtp.recipients).containsExactly("second@example.com");
+        verify(repository).deleteByIdIn(List.of(2L));
+        verify(repository).markFailed(eq(1L), eq(1), any(), anyString(), eq(false));
+    }
+
+    @Test
+    void aRefusedEmailIsRetriedAndTheOthersAreDeleted() {
+        NotificationEmailJdbcRepository.Email refused = email(1, null).withEmailTo("refused@example.com");
+        when(repository.lockDue(any(), anyInt())).thenReturn(List.of(refused, email(2, "second")));
+
+        notificationEmailService.dispatch();
+
+        assertThat(smtp.recipients).containsExactly("second@example.com");
+        verify(repository).deleteByIdIn(List.of(2L));
+        verify(repository).markFailed(eq(1L), eq(1), any(), anyString(), eq(false));
+    }
+
+    private static NotificationEmailJdbcRepository.Email email(long id, String userLogin) {
+        return new NotificationEmailJdbcRepository.Email(id, id, userLogin, null, "Notification", "Body " + id, null, 0, Instant.now());
+    }
+
+    /**
+     * A user service answering like the admin endpoint of the gateway: a valid token with the admin authority, or a 403.
+     */
+    private static final class UserService implements UserServiceClient {
+
+        private final TokenProvider tokenProvider;
+
+        private final Map<String, String> addresses;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private UserService(TokenProvider tokenProvider, Map<String, String> addresses) {
+            this.tokenProvider = tokenProvider;
+            this.addresses = addresses;
+        }
+
+        @Override
+        public User getUser(String authorization, String login) {
+            calls.incrementAndGet();
+            String jwt = authorization == null || !authorization.startsWith("Bearer ") ? "" : authorization.substring(7);
+            if (!tokenProvider.validateToken(jwt)) {
+                throw new IllegalStateException("401 Unauthorized");
+            }
+            Authentication authentication = tokenProvider.getAuthentication(jwt);
+            boolean admin = authentication.getAuthorities().stream().anyMatch(it -> AuthoritiesConstants.ADMIN.equals(it.getAuthority()));
+            if (!admin) {
+                throw new IllegalStateException("403 Forbidden");
+            }
+            String address = addresses.get(login.toLowerCase());
+            if (address == null) {
+                throw new IllegalStateException("404 Not Found");
+            }
+            return new User(login, address);
+        }
+    }
+
+    /**
+     * A minimal SMTP server, accepting every recipient but the ones whose address starts with {@code refused}.
+     */
+    private static final class SmtpStandIn implements AutoCloseable {
+
+        private final ServerSocket serverSocket = new ServerSocket(0);
+
+        private final List<String> recipients = new CopyOnWriteArrayList<>();
+
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger sessions = new AtomicInteger();
+
+        private SmtpStandIn() throws IOException {
+            Thread acceptor = new Thread(this::accept, "smtp-stand-in");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    sessions.incrementAndGet();
+                    converse(socket);
+                } catch (IOException e) {
+                    // Serveur fermé à la fin du test
+                }
+            }
+        }
+
+        private void converse(Socket socket) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            reply(out, "220 localhost");
+            List<String> pending = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("RCPT TO:")) {
+                    String address = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                    if (address.startsWith("refused")) {
+                        reply(out, "550 mailbox unavailable");
+                    } else {
+                        pending.add(address);
+                        reply(out, "250 OK");
+                    }
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    StringBuilder message = new StringBuilder();
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        message.append(line).append('\n');
+                    }
+                    messages.add(message.toString());
+                    recipients.addAll(pending);
+                    pending.clear();
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    if (command.startsWith("RSET") || command.startsWith("MAIL FROM:")) {
+                        pending.clear();
+                    }
+                    // EHLO, HELO, MAIL, RSET et NOOP
+                    reply(out, "250 OK");
+                }
+            }
+        }
+
+        private static void reply(PrintWriter out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.annotation.Transactional;
+import sn.sonatel.dsi.ins.imoc.IntegrationTest;
+import sn.sonatel.dsi.ins.imoc.config.StatementCounter;
+import sn.sonatel.dsi.ins.imoc.domain.Notification;
+import sn.sonatel.dsi.ins.imoc.repository.NotificationRepository;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+
+/**
+ * Counts the statements sent by the write paths of {@link NotificationService}, through JPA and plain JDBC.
+ */
+@IntegrationTest
+@Import(StatementCounter.class)
+@Transactional
+@WithMockUser(NotificationServiceQueryCountIT.OWNER)
+class NotificationServiceQueryCountIT {
+
+    static final String OWNER = "query-count-owner";
+
+    private static final String OTHER_USER = "query-count-other";
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private Notification notification;
+
+    @BeforeEach
+    void initTest() {
+        notification = new Notification().message("AAAAAAAAAA").userLogin(OWNER).deleted(false).read(false).occurrences(1);
+        em.persist(notification);
+        em.flush();
+        em.clear();
+        statementCounter.clear();
+    }
+
+    @Test
+    void marquerLueRunsOneUpdate() {
+        assertThat(notificationService.marquerLue(notification.getId())).isTrue();
+
+        assertThat(statementCounter.getCount()).isEqualTo(1);
+        em.clear();
+        assertThat(notificationRepository.findById(notification.getId())).get().extracting(Notification::getRead).isEqualTo(true);
+    }
+
+    @Test
+    void updateByItsOwnerRunsOneUpdate() {
+        NotificationDTO notificationDTO = new NotificationDTO();
+        notificationDTO.setId(notification.getId());
+        notificationDTO.setMessage("BBBBBBBBBB");
+        notificationDTO.setUserLogin(OWNER);
+        notificationDTO.setDeleted(false);
+        notificationDTO.setRead(true);
+
+        NotificationDTO updated = notificationService.update(notificationDTO).orElseThrow();
+
+        assertThat(statementCounter.getCount()).isEqualTo(1);
+        assertThat(updated.getMessage()).isEqualTo("BBBBBBBBBB");
+        assertThat(updated.getRead()).isTrue();
+        em.clear();
+        assertThat(notificationRepository.findById(notification.getId())).get().extracting(Notification::getRead).isEqualTo(true);
+    }
+
+    @Test
+    void updateGivingTheNotificationToAnotherUserReadsThePreviousOwner() {
+        NotificationDTO notificationDTO = new NotificationDTO();
+        notificationDTO.setId(notification.getId());
+        notificationDTO.setMessage("BBBBBBBBBB");
+        notificationDTO.setUserLogin(OTHER_USER);
+        notificationDTO.setDeleted(false);
+        notificationDTO.setRead(false);
+
+        assertThat(notificationService.update(notificationDTO)).isPresent();
+
+        // UPDATE conditionné sans effet, lecture du propriétaire, puis UPDATE
+        assertThat(statementCounter.getCount()).isEqualTo(3);
+        em.clear();
+        assertThat(notificationRepository.findById(notification.getId()))
+            .get()
+            .extracting(Notification::getUserLogin)
+            .isEqualTo(OTHER_USER);
+    }
+
+    @Test
+    void partialUpdateMergesOnlyNonNullFields() {
+        NotificationDTO notificationDTO = new NotificationDTO();
+        notificationDTO.setId(notification.getId());
+        notificationDTO.setRead(true);
+
+        NotificationDTO updated = notificationService.partialUpdate(notificationDTO).orElseThrow();
+
+        // UPDATE puis relecture, qui donne le propriétaire
+        assertThat(statementCounter.getCount()).isEqualTo(2);
+        assertThat(updated.getMessage()).isEqualTo("AAAAAAAAAA");
+        assertThat(updated.getUserLogin()).isEqualTo(OWNER);
+        assertThat(updated.getRead()).isTrue();
+    }
+
+    @Test
+    void updateOfUnknownNotificationRunsTheUpdateAndTheLookup() {
+        NotificationDTO notificationDTO = new NotificationDTO();
+        notificationDTO.setId(Long.MAX_VALUE);
+        notificationDTO.setMessage("BBBBBBBBBB");
+        notificationDTO.setUserLogin(OWNER);
+        notificationDTO.setDeleted(false);
+        notificationDTO.setRead(false);
+
+        assertThat(notificationService.update(notificationDTO)).isEmpty();
+        assertThat(statementCounter.getCount()).isEqualTo(2);
+    }
+
+    @Test
+    @WithMockUser(OTHER_USER)
+    void marquerLueOfAnotherUserChangesNothing() {
+        assertThat(notificationService.marquerLue(notification.getId())).isFalse();
+
+        em.clear();
+        assertThat(notificationRepository.findById(notification.getId())).get().extracting(Notification::getRead).isEqualTo(false);
+    }
+}
@@ -0,0 +1,189 @@
+package sn.sonatel.dsi.ins.imoc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sn.sonatel.dsi.ins.imoc.config.ShardRing;
+import sn.sonatel.dsi.ins.imoc.config.ShardRoutingDataSource;
+
+/**
+ * Test class for the {@link NotificationShardService}, over three mock shards routed by a {@link ShardRoutingDataSource}.
+ */
+class NotificationShardServiceTest {
+
+    private static final List<String> SHARD_NAMES = List.of("primary", "shard-1", "shard-2");
+
+    private static final int VIRTUAL_NODES = 64;
+
+    private static final List<String> LOGINS = IntStream.range(0, 3000).mapToObj(i -> "user-" + i).toList();
+
+    private final ShardRing shardRing = new ShardRing(SHARD_NAMES, VIRTUAL_NODES);
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    private ShardRoutingDataSource routingDataSource;
+
+    private DataSource dataSource;
+
+    private NotificationShardService notificationShardService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        List<DataSource> shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARD_NAMES.size(); shard++) {
+            Connection connection = mock(Connection.class);
+            DataSource shardDataSource = mock(DataSource.class);
+            when(shardDataSource.getConnection()).thenReturn(connection);
+            connections.add(connection);
+            shards.add(shardDataSource);
+        }
+        routingDataSource = new ShardRoutingDataSource(shards, shardRing);
+        routingDataSource.afterPropertiesSet();
+        dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        notificationShardService = new NotificationShardService(shardRingProvider(shardRing), new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationShardService.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void theLoginsAreSpreadOverEveryShard() {
+        Map<Integer, List<String>> groups = notificationShardService.groupByShard(LOGINS);
+
+        assertThat(groups).containsOnlyKeys(0, 1, 2);
+        // Un tiers chacun, à la dispersion du hachage près
+        groups.values().forEach(group -> assertThat(group).hasSizeBetween(LOGINS.size() / 6, LOGINS.size() / 2));
+    }
+
+    @Test
+    void aLoginAlwaysBelongsToTheSameShard() {
+        ShardRing sameRing = new ShardRing(SHARD_NAMES, VIRTUAL_NODES);
+
+        for (String login : LOGINS) {
+            assertThat(sameRing.shardFor(login)).isEqualTo(shardRing.shardFor(login));
+            assertThat(shardRing.shardFor(login.toUpperCase())).isEqualTo(shardRing.shardFor(login));
+        }
+    }
+
+    @Test
+    void addingAShardOnlyMovesTheLoginsOfTheNewShard() {
+        List<String> names = new ArrayList<>(SHARD_NAMES);
+        names.add("shard-3");
+        ShardRing grownRing = new ShardRing(names, VIRTUAL_NODES);
+
+        long moved = 0;
+        for (String login : LOGINS) {
+            int shard = grownRing.shardFor(login);
+            if (shard != shardRing.shardFor(login)) {
+                assertThat(shard).isEqualTo(3);
+                moved++;
+            }
+        }
+        // Environ un utilisateur sur quatre change de shard
+        assertThat(moved).isBetween(LOGINS.size() / 8L, LOGINS.size() / 2L);
+    }
+
+    @Test
+    void onUserShardRunsOnTheShardOfTheUser() {
+        for (String login : LOGINS.subList(0, 50)) {
+            assertThat(notificationShardService.onUserShard(login, this::routedConnection)).isSameAs(
+                connections.get(shardRing.shardFor(login))
+            );
+        }
+    }
+
+    @Test
+    void withoutShardTheCurrentUserPicksTheShard() {
+        String login = LOGINS.get(0);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(login, login));
+
+        assertThat(routedConnection()).isSameAs(connections.get(shardRing.shardFor(login)));
+        // Le shard explicite l'emporte sur celui de l'utilisateur
+        int otherShard = (shardRing.shardFor(login) + 1) % SHARD_NAMES.size();
+        assertThat(notificationShardService.onShard(otherShard, this::routedConnection)).isSameAs(connections.get(otherShard));
+    }
+
+    @Test
+    void scatterRunsOnEveryShardInItsOwnTransaction() throws SQLException {
+        List<Integer> results = notificationShardService.scatter(true, shard -> {
+            assertThat(TransactionSynchronizationManager.isCurrentTransactionReadOnly()).isTrue();
+            try {
+                DataSourceUtils.getConnection(dataSource).createStatement();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return shard;
+        });
+
+        assertThat(results).containsExactly(0, 1, 2);
+        for (Connection connection : connections) {
+            verify(connection).createStatement();
+            verify(connection).commit();
+        }
+    }
+
+    @Test
+    void scatterRethrowsTheFailureOfAShard() {
+        assertThatThrownBy(() ->
+            notificationShardService.scatter(false, shard -> {
+                if (shard == 1) {
+                    throw new IllegalStateException("shard 1 failed");
+                }
+                return shard;
+            })
+        )
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("shard 1 failed");
+    }
+
+    @Test
+    void withoutShardingEverythingRunsOnASingleShardInTheCallingThread() {
+        NotificationShardService unsharded = new NotificationShardService(
+            shardRingProvider(null),
+            new DataSourceTransactionManager(dataSource)
+        );
+
+        assertThat(unsharded.isSharded()).isFalse();
+        assertThat(unsharded.getShardCount()).isEqualTo(1);
+        assertThat(unsharded.shardFor(LOGINS.get(0))).isZero();
+        assertThat(unsharded.scatter(true, shard -> Thread.currentThread())).containsExactly(Thread.currentThread());
+    }
+
+    private Connection routedConnection() {
+        try {
+            return routingDataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<ShardRing> shardRingProvider(ShardRing shardRing) {
+        ObjectProvider<ShardRing> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(shardRing);
+        return provider;
+    }
+}
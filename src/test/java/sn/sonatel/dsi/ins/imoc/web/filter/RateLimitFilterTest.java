@@ -0,0 +1,155 @@
+package sn.sonatel.dsi.ins.imoc.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+
+/**
+ * Test class for the {@link RateLimitFilter}: the client address resolution, the token buckets and their eviction.
+ */
+class RateLimitFilterTest {
+
+    private static final String GATEWAY = "10.0.0.5";
+
+    private static final String CLIENT = "203.0.113.7";
+
+    private final RateLimitFilter filter = new RateLimitFilter(new ApplicationProperties.RateLimit(), new SimpleMeterRegistry());
+
+    @Test
+    void aDirectClientIsKeyedOnItsAddress() {
+        assertThat(filter.clientAddress(request(CLIENT, "198.51.100.1"))).isEqualTo(CLIENT);
+    }
+
+    @Test
+    void behindTheGatewayTheForwardedAddressIsUsed() {
+        assertThat(filter.clientAddress(request(GATEWAY, CLIENT))).isEqualTo(CLIENT);
+    }
+
+    @Test
+    void theEntriesWrittenByTheClientAreIgnored() {
+        // Le client a ajouté une fausse adresse avant celle ajoutée par la passerelle
+        assertThat(filter.clientAddress(request(GATEWAY, "198.51.100.1, " + CLIENT))).isEqualTo(CLIENT);
+        assertThat(filter.clientAddress(request(GATEWAY, "198.51.100.1", CLIENT))).isEqualTo(CLIENT);
+    }
+
+    @Test
+    void theTrustedProxiesInTheChainAreSkipped() {
+        assertThat(filter.clientAddress(request(GATEWAY, CLIENT + ", 192.168.1.20"))).isEqualTo(CLIENT);
+    }
+
+    @Test
+    void withoutForwardedHeaderTheGatewayIsUsed() {
+        assertThat(filter.clientAddress(request(GATEWAY))).isEqualTo(GATEWAY);
+    }
+
+    @Test
+    void withoutTrustedProxyTheHeaderIsNeverRead() {
+        ApplicationProperties.RateLimit properties = new ApplicationProperties.RateLimit();
+        properties.setTrustedProxies("");
+        RateLimitFilter direct = new RateLimitFilter(properties, new SimpleMeterRegistry());
+
+        assertThat(direct.clientAddress(request(GATEWAY, CLIENT))).isEqualTo(GATEWAY);
+    }
+
+    @Test
+    void theBurstIsAllowedThenTheClientWaitsForTheBucketToRefill() throws Exception {
+        ApplicationProperties.RateLimit properties = new ApplicationProperties.RateLimit();
+        properties.getAnonymous().setRate(10);
+        properties.getAnonymous().setBurst(2);
+        RateLimitFilter limited = new RateLimitFilter(properties, new SimpleMeterRegistry());
+
+        MockHttpServletResponse first = call(limited, CLIENT);
+        assertThat(first.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(first.getHeader(RateLimitFilter.LIMIT_HEADER)).isEqualTo("2");
+        assertThat(first.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("1");
+        assertThat(first.getHeader(RateLimitFilter.RESET_HEADER)).isEqualTo("1");
+        assertThat(call(limited, CLIENT).getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("0");
+
+        MockHttpServletResponse rejected = call(limited, CLIENT);
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(rejected.getHeader(RateLimitFilter.LIMIT_HEADER)).isEqualTo("2");
+        assertThat(rejected.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("0");
+        // Un autre client garde son propre seau
+        assertThat(call(limited, "198.51.100.1").getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        // Un jeton revient toutes les 100 ms
+        Thread.sleep(150);
+        assertThat(call(limited, CLIENT).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void aFullStripeDropsABucketForTheNewClient() throws Exception {
+        ApplicationProperties.RateLimit properties = new ApplicationProperties.RateLimit();
+        // Un seau par bande
+        properties.setMaxEntries(64);
+        RateLimitFilter limited = new RateLimitFilter(properties, new SimpleMeterRegistry());
+        String first = "203.0.113.1";
+        String second = sameStripeAs(first);
+
+        call(limited, first);
+        call(limited, first);
+        assertThat(limited.getEntryCount()).isEqualTo(1);
+
+        // Le seau du premier client n'est pas plein : il est retiré faute de seau inactif
+        assertThat(call(limited, second).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(limited.getEntryCount()).isEqualTo(1);
+
+        // Revenu, le premier client repart d'un seau plein
+        assertThat(call(limited, first).getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("4");
+        assertThat(limited.getEntryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void theRequestsOutsideTheApiAreNotLimited() throws Exception {
+        ApplicationProperties.RateLimit properties = new ApplicationProperties.RateLimit();
+        properties.getAnonymous().setBurst(1);
+        RateLimitFilter limited = new RateLimitFilter(properties, new SimpleMeterRegistry());
+        MockHttpServletRequest request = request(CLIENT);
+        request.setRequestURI("/management/health");
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            limited.doFilter(request, response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+        assertThat(limited.getEntryCount()).isZero();
+    }
+
+    private static MockHttpServletResponse call(RateLimitFilter limited, String remoteAddr) throws ServletException, IOException {
+        MockHttpServletRequest request = request(remoteAddr);
+        request.setRequestURI("/api/notifications/welcome");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        limited.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    // Les seaux anonymes sont rangés par le hash de « a: » suivi de l'adresse
+    private static String sameStripeAs(String address) {
+        int stripe = Math.floorMod(("a:" + address).hashCode(), 64);
+        for (int i = 2; ; i++) {
+            String candidate = "203.0." + (i / 256) + "." + (i % 256);
+            if (!candidate.equals(address) && Math.floorMod(("a:" + candidate).hashCode(), 64) == stripe) {
+                return candidate;
+            }
+        }
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String... forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        for (String header : forwardedFor) {
+            request.addHeader("X-Forwarded-For", header);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,173 @@
+package sn.sonatel.dsi.ins.imoc.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import sn.sonatel.dsi.ins.imoc.config.ApplicationProperties;
+import sn.sonatel.dsi.ins.imoc.service.DeferredNotificationService;
+import sn.sonatel.dsi.ins.imoc.service.NotificationPayloadCache;
+import sn.sonatel.dsi.ins.imoc.service.NotificationQueryService;
+import sn.sonatel.dsi.ins.imoc.service.NotificationService;
+import sn.sonatel.dsi.ins.imoc.service.NotificationTemplateRenderer;
+import sn.sonatel.dsi.ins.imoc.service.PollHintService;
+import sn.sonatel.dsi.ins.imoc.service.dto.NotificationDTO;
+import sn.sonatel.dsi.ins.imoc.service.event.NotificationsChangedEvent;
+
+/**
+ * Test class for the cached history bodies of the {@link NotificationResource}.
+ */
+class NotificationResourceTest {
+
+    private static final String USER = "user";
+
+    private static final String HISTORY_URL = "/api/notifications/history";
+
+    private NotificationService notificationService;
+
+    private NotificationPayloadCache notificationPayloadCache;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getResponseCache().setEnabled(true);
+        applicationProperties.getResponseCache().setMinCompressSize(64);
+        notificationService = mock(NotificationService.class);
+        notificationPayloadCache = new NotificationPayloadCache(
+            new ObjectMapper().findAndRegisterModules(),
+            applicationProperties,
+            new SimpleMeterRegistry()
+        );
+        NotificationResource notificationResource = new NotificationResource(
+            notificationService,
+            mock(NotificationQueryService.class),
+            applicationProperties,
+            notificationPayloadCache,
+            mock(PollHintService.class),
+            mock(DeferredNotificationService.class),
+            mock(NotificationTemplateRenderer.class)
+        );
+        mockMvc = MockMvcBuilders.standaloneSetup(notificationResource).build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(USER, null, List.of()));
+        when(notificationService.getNotificationsHistory(false)).thenReturn(List.of(notification(1, "Votre réservation est confirmée")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void theClientsAcceptingGzipGetTheCompressedBytesTheOthersTheJson() throws Exception {
+        MockHttpServletResponse identity = mockMvc
+            .perform(get(HISTORY_URL))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andReturn()
+            .getResponse();
+        MockHttpServletResponse gzip = mockMvc
+            .perform(get(HISTORY_URL).header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn()
+            .getResponse();
+
+        String json = identity.getContentAsString(StandardCharsets.UTF_8);
+        assertThat(json).contains("Votre réservation est confirmée");
+        assertThat(gunzip(gzip.getContentAsByteArray())).isEqualTo(json);
+        assertThat(identity.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gzip.getHeader(HttpHeaders.ETAG)).isNotEqualTo(identity.getHeader(HttpHeaders.ETAG));
+        // La liste n'est sérialisée qu'une fois pour les deux représentations
+        verify(notificationService, times(1)).getNotificationsHistory(false);
+    }
+
+    @Test
+    void gzipRefusedWithAZeroQualityGetsTheJson() throws Exception {
+        mockMvc
+            .perform(get(HISTORY_URL).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void aKnownEtagGetsANotModified() throws Exception {
+        String etag = mockMvc.perform(get(HISTORY_URL)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String gzipEtag = mockMvc
+            .perform(get(HISTORY_URL).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse notModified = mockMvc
+            .perform(get(HISTORY_URL).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andReturn()
+            .getResponse();
+        assertThat(notModified.getContentAsByteArray()).isEmpty();
+        mockMvc
+            .perform(get(HISTORY_URL).header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+            .andExpect(status().isNotModified());
+        // L'ETag d'une représentation ne vaut pas pour l'autre
+        mockMvc.perform(get(HISTORY_URL).header(HttpHeaders.IF_NONE_MATCH, gzipEtag)).andExpect(status().isOk());
+    }
+
+    @Test
+    void aChangeToTheNotificationsOfTheUserServesTheNewList() throws Exception {
+        String etag = mockMvc.perform(get(HISTORY_URL)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        when(notificationService.getNotificationsHistory(false)).thenReturn(List.of(notification(2, "Votre réservation est annulée")));
+
+        // Le changement d'un autre utilisateur laisse l'entrée en place
+        notificationPayloadCache.onNotificationsChanged(NotificationsChangedEvent.forUser("other"));
+        mockMvc.perform(get(HISTORY_URL).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+        notificationPayloadCache.onNotificationsChanged(NotificationsChangedEvent.forUser(USER));
+        MockHttpServletResponse changed = mockMvc
+            .perform(get(HISTORY_URL).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse();
+        assertThat(changed.getContentAsString(StandardCharsets.UTF_8)).contains("Votre réservation est annulée");
+        assertThat(changed.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+        verify(notificationService, times(2)).getNotificationsHistory(false);
+    }
+
+    private static NotificationDTO notification(long id, String message) {
+        NotificationDTO notificationDTO = new NotificationDTO();
+        notificationDTO.setId(id);
+        notificationDTO.setMessage(message + ", le message est assez long pour être compressé.");
+        notificationDTO.setUserLogin(USER);
+        notificationDTO.setDeleted(false);
+        notificationDTO.setRead(false);
+        return notificationDTO;
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}